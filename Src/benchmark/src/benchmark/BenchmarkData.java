@@ -0,0 +1,156 @@
+package benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import global.CmdOption;
+import model.ModelParameters;
+import model.TopicModel;
+import model.TopicModelSummary;
+import nlp.Corpus;
+import nlp.Topics;
+import utility.FileReaderAndWriter;
+
+/**
+ * Load the bundled domains (Data/Input) for the benchmarks and build the
+ * models they need.
+ * 
+ * A domain can be scaled up synthetically by repeating its documents, which
+ * keeps the vocabulary and word statistics of the domain while multiplying the
+ * number of tokens.
+ */
+public class BenchmarkData {
+	public static final String ELECTRONICS = "Electronics";
+
+	/**
+	 * Get the directory of a domain in a dataset (100Reviews or 1000Reviews).
+	 */
+	public static String getDomainDirectory(String inputDirectory,
+			String dataset, String domain) {
+		return inputDirectory + File.separator + dataset + File.separator
+				+ ELECTRONICS + File.separator + domain + File.separator;
+	}
+
+	/**
+	 * Get the names of the first noofDomains domains of a dataset.
+	 */
+	public static ArrayList<String> getDomains(String inputDirectory,
+			String dataset, int noofDomains) {
+		ArrayList<String> domains = new ArrayList<String>();
+		File[] domainFiles = new File(inputDirectory + File.separator
+				+ dataset + File.separator + ELECTRONICS).listFiles();
+		Arrays.sort(domainFiles);
+		for (File domainFile : domainFiles) {
+			if (domainFile.isDirectory() && domains.size() < noofDomains) {
+				domains.add(domainFile.getName());
+			}
+		}
+		return domains;
+	}
+
+	/**
+	 * Read the corpus of a domain with its documents repeated scale times.
+	 */
+	public static Corpus loadCorpus(String inputDirectory, String dataset,
+			String domain, int scale) {
+		String domainDirectory = getDomainDirectory(inputDirectory, dataset,
+				domain);
+		String docsFilepath = domainDirectory + domain + ".docs";
+		String vocabFilepath = domainDirectory + domain + ".vocab";
+		if (scale > 1) {
+			// Write the scaled documents into a temporary file.
+			String docs = FileReaderAndWriter.readFile(docsFilepath);
+			StringBuilder sbDocs = new StringBuilder();
+			for (int i = 0; i < scale; ++i) {
+				sbDocs.append(docs);
+			}
+			try {
+				File scaledDocsFile = File.createTempFile(domain, ".docs");
+				scaledDocsFile.deleteOnExit();
+				docsFilepath = scaledDocsFile.getAbsolutePath();
+			} catch (Exception ex) {
+				ex.printStackTrace();
+			}
+			FileReaderAndWriter.writeFile(docsFilepath, sbDocs.toString());
+		}
+		return Corpus.getCorpusFromFile(domain, docsFilepath, vocabFilepath);
+	}
+
+	/**
+	 * Get the number of tokens in the corpus.
+	 */
+	public static long getNoofTokens(Corpus corpus) {
+		long noofTokens = 0;
+		for (int[] doc : corpus.docs) {
+			noofTokens += doc.length;
+		}
+		return noofTokens;
+	}
+
+	/**
+	 * Create the parameters of a model with the default settings of the
+	 * program, except the number of topics and Gibbs sampling iterations. No
+	 * iteration is treated as burn in.
+	 */
+	public static ModelParameters createModelParameters(Corpus corpus,
+			String modelName, int nTopics, int nIterations) {
+		CmdOption cmdOption = new CmdOption();
+		ModelParameters param = new ModelParameters(corpus, nTopics, cmdOption);
+		param.modelName = modelName;
+		param.nIterations = nIterations;
+		param.nBurnin = 0;
+		param.sampleLag = -1;
+		return param;
+	}
+
+	/**
+	 * Run LDA on the corpus.
+	 */
+	public static TopicModel runLDA(Corpus corpus, int nTopics,
+			int nIterations) {
+		ModelParameters param = createModelParameters(corpus, "LDA", nTopics,
+				nIterations);
+		TopicModel model = TopicModel.selectModel(corpus, param);
+		model.run();
+		return model;
+	}
+
+	/**
+	 * Run LDA on the corpus, summarized (with z[][]) as the LDA model of the
+	 * same setting of AMC.
+	 */
+	public static ArrayList<TopicModelSummary> runLDAOfSameSetting(
+			Corpus corpus, int nTopics, int nIterations) {
+		ArrayList<TopicModel> topicModelList = new ArrayList<TopicModel>();
+		topicModelList.add(runLDA(corpus, nTopics, nIterations));
+		return TopicModelSummary.summarize(topicModelList, false, true);
+	}
+
+	/**
+	 * Run LDA on the first noofDomains domains of a dataset, summarized (with
+	 * the top words under the topics) as the knowledge of AMC.
+	 */
+	public static ArrayList<TopicModelSummary> runLDAOnDomains(
+			String inputDirectory, String dataset, int noofDomains,
+			int nTopics, int nIterations) {
+		ArrayList<TopicModel> topicModelList = new ArrayList<TopicModel>();
+		for (String domain : getDomains(inputDirectory, dataset, noofDomains)) {
+			Corpus corpus = loadCorpus(inputDirectory, dataset, domain, 1);
+			topicModelList.add(runLDA(corpus, nTopics, nIterations));
+		}
+		return TopicModelSummary.summarize(topicModelList, true, false);
+	}
+
+	/**
+	 * Get the prior topics (top words under the topics) of the summaries.
+	 */
+	public static Topics getPriorTopics(
+			ArrayList<TopicModelSummary> summaryList) {
+		Topics priorTopics = new Topics();
+		for (TopicModelSummary summary : summaryList) {
+			priorTopics.addTopics(summary.topics);
+		}
+		return priorTopics;
+	}
+}
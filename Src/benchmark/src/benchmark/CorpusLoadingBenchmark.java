@@ -0,0 +1,44 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import nlp.Corpus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure reading the corpus (docs and vocab) of a domain from the disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CorpusLoadingBenchmark {
+	@Param({ "100Reviews", "1000Reviews" })
+	public String dataset;
+
+	@Param({ "Camera" })
+	public String domain;
+
+	@Param({ "../../Data/Input/" })
+	public String inputDirectory;
+
+	@Benchmark
+	public Corpus getCorpusFromFile() {
+		String domainDirectory = BenchmarkData.getDomainDirectory(
+				inputDirectory, dataset, domain);
+		return Corpus.getCorpusFromFile(domain, domainDirectory + domain
+				+ ".docs", domainDirectory + domain + ".vocab");
+	}
+}
@@ -0,0 +1,123 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import model.ModelParameters;
+import model.TopicModel;
+import model.TopicModelSummary;
+import nlp.Corpus;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the tokens per second sampled by the Gibbs samplers of LDA and AMC
+ * (i.e., sampleTopicAssignment() over all tokens of a domain).
+ * 
+ * Each invocation runs a fresh model for a few sweeps. The model is created
+ * outside of the measurement, so the knowledge extraction of AMC is not
+ * measured here (see KnowledgeBenchmark). The sweeps of AMC include the
+ * cannot-link learning rounds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class GibbsSamplerBenchmark {
+	@Param({ "LDA", "AMC" })
+	public String modelName;
+
+	@Param({ "100Reviews", "1000Reviews" })
+	public String dataset;
+
+	@Param({ "Camera" })
+	public String domain;
+
+	// The number of times the documents of the domain are repeated.
+	@Param({ "1", "10" })
+	public int scale;
+
+	@Param({ "15" })
+	public int nTopics;
+
+	@Param({ "10" })
+	public int nIterations;
+
+	// The number of domains in 1000Reviews used as the knowledge of AMC.
+	@Param({ "10" })
+	public int noofKnowledgeDomains;
+
+	@Param({ "../../Data/Input/" })
+	public String inputDirectory;
+
+	private Corpus corpus = null;
+	private ArrayList<TopicModelSummary> topicModelList_LDA_SameSetting = null;
+	private ArrayList<TopicModelSummary> topicModelList_LDA_KnowledgeFrom = null;
+	private TopicModel model = null;
+	private long noofTokensPerRun = 0;
+
+	/**
+	 * The number of tokens sampled, reported as tokens per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class SampledTokens {
+		public long tokens = 0;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			tokens = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void loadCorpusAndKnowledge() {
+		corpus = BenchmarkData.loadCorpus(inputDirectory, dataset, domain,
+				scale);
+		if (modelName.equals("AMC")) {
+			// AMC starts from the LDA results of the same domain and extracts
+			// the knowledge from the LDA results of other domains.
+			topicModelList_LDA_SameSetting = BenchmarkData
+					.runLDAOfSameSetting(corpus, nTopics, 100);
+			topicModelList_LDA_KnowledgeFrom = BenchmarkData.runLDAOnDomains(
+					inputDirectory, "1000Reviews", noofKnowledgeDomains,
+					nTopics, 100);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void createModel() {
+		ModelParameters param = BenchmarkData.createModelParameters(corpus,
+				modelName, nTopics, nIterations);
+		param.topicModelList_LDA_SameSetting = topicModelList_LDA_SameSetting;
+		param.topicModelList_LDA_KnowledgeFrom = topicModelList_LDA_KnowledgeFrom;
+		model = TopicModel.selectModel(corpus, param);
+
+		long noofSweeps = param.nIterations;
+		if (modelName.equals("AMC")) {
+			noofSweeps *= 1 + param.cannotLinkLearningIterations;
+		}
+		noofTokensPerRun = BenchmarkData.getNoofTokens(corpus) * noofSweeps;
+	}
+
+	@Benchmark
+	public TopicModel runGibbsSampling(SampledTokens sampledTokens) {
+		model.run();
+		sampledTokens.tokens += noofTokensPerRun;
+		return model;
+	}
+}
@@ -0,0 +1,72 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utility.AliasSampler;
+import utility.InverseTransformSampler;
+
+/**
+ * Measure the time of drawing one sample from an unnormalized distribution
+ * over T topics: by linear scan, by binary search over a prebuilt cumulative
+ * distribution, and from a prebuilt alias table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InverseTransformSamplerBenchmark {
+	@Param({ "15", "100", "1000" })
+	public int T;
+
+	private double[] p = null;
+	private double[] cdf = null;
+	private AliasSampler aliasSampler = null;
+	private Random randomGenerator = null;
+
+	@Setup(Level.Trial)
+	public void createDistribution() {
+		randomGenerator = new Random(837191);
+		p = new double[T];
+		for (int t = 0; t < T; ++t) {
+			p[t] = randomGenerator.nextDouble();
+		}
+		cdf = new double[T];
+		cdf[0] = p[0];
+		for (int t = 1; t < T; ++t) {
+			cdf[t] = cdf[t - 1] + p[t];
+		}
+		aliasSampler = new AliasSampler(p);
+	}
+
+	@Benchmark
+	public int sample() {
+		return InverseTransformSampler.sample(p, randomGenerator.nextDouble());
+	}
+
+	@Benchmark
+	public int sampleFromCumulative() {
+		return InverseTransformSampler.sampleFromCumulative(cdf, T,
+				randomGenerator.nextDouble());
+	}
+
+	@Benchmark
+	public int sampleFromAliasTable() {
+		return aliasSampler.sample(randomGenerator.nextDouble());
+	}
+}
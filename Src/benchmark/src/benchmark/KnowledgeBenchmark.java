@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import fim.ItemSet;
+import fim.MSApriori;
+import fim.Transactions;
+import model.AMC;
+import model.ModelParameters;
+import model.TopicModelSummary;
+import nlp.Corpus;
+import nlp.Topics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the knowledge extraction of AMC: mining the frequent itemsets
+ * (must-links) from the prior topics with MS-Apriori, and building the
+ * must-link graph of a domain.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class KnowledgeBenchmark {
+	@Param({ "Camera" })
+	public String domain;
+
+	@Param({ "15" })
+	public int nTopics;
+
+	// The number of domains in 1000Reviews used as the knowledge.
+	@Param({ "10", "50" })
+	public int noofKnowledgeDomains;
+
+	@Param({ "../../Data/Input/" })
+	public String inputDirectory;
+
+	private Topics priorTopics = null;
+	private Transactions transactions = null;
+	private ModelParameters param = null;
+	private AMC amc = null;
+
+	@Setup(Level.Trial)
+	public void createKnowledge() {
+		ArrayList<TopicModelSummary> topicModelList_LDA_KnowledgeFrom = BenchmarkData
+				.runLDAOnDomains(inputDirectory, "1000Reviews",
+						noofKnowledgeDomains, nTopics, 100);
+		Corpus corpus = BenchmarkData.loadCorpus(inputDirectory, "100Reviews",
+				domain, 1);
+		param = BenchmarkData.createModelParameters(corpus, "AMC", nTopics, 0);
+		param.topicModelList_LDA_SameSetting = BenchmarkData
+				.runLDAOfSameSetting(corpus, nTopics, 100);
+		param.topicModelList_LDA_KnowledgeFrom = topicModelList_LDA_KnowledgeFrom;
+		// The constructor extracts the must-links and builds the graph once.
+		amc = new AMC(corpus, param);
+
+		priorTopics = BenchmarkData
+				.getPriorTopics(topicModelList_LDA_KnowledgeFrom);
+	}
+
+	@Setup(Level.Invocation)
+	public void createTransactions() {
+		// MS-Apriori sorts the transactions in place, so each invocation
+		// starts from new transactions.
+		transactions = new Transactions(priorTopics);
+	}
+
+	@Benchmark
+	public ArrayList<ItemSet> runMSApriori() {
+		MSApriori ms_apriori = new MSApriori(transactions,
+				param.uniformMinimumSupport,
+				param.multipleMiniSupportPercentage,
+				param.supportDifferenceConstraint);
+		return ms_apriori.runToSizeK(2);
+	}
+
+	@Benchmark
+	public AMC buildMustLinkGraph() {
+		amc.buildMustLinkGraph();
+		return amc;
+	}
+}
@@ -7,7 +7,6 @@ import java.util.Map;
 
 import nlp.Topic;
 import nlp.Topics;
-import utility.ItemWithValue;
 
 /**
  * The transactions for frequent itemset mining.
@@ -37,10 +36,29 @@ public class Transactions {
 		mpItemToWord = new HashMap<Integer, String>();
 		mpItemToCount = new HashMap<Integer, Integer>();
 
+		// If the topics have global word ids, the words are looked up by their
+		// global word ids. The items are numbered in the order of the first
+		// appearance of the words either way.
+		Map<Integer, Integer> mpGlobalWordidToItem = topics
+				.hasGlobalWordids() ? new HashMap<Integer, Integer>() : null;
 		for (Topic topic : topics) {
 			ArrayList<Integer> transaction = new ArrayList<Integer>();
-			for (ItemWithValue iwv : topic.topWordList) {
-				String word = iwv.getIterm().toString();
+			for (int i = 0; i < topic.topWordList.size(); ++i) {
+				if (mpGlobalWordidToItem != null) {
+					int globalWordid = topic.globalWordids[i];
+					Integer id = mpGlobalWordidToItem.get(globalWordid);
+					if (id == null) {
+						id = mpGlobalWordidToItem.size();
+						mpGlobalWordidToItem.put(globalWordid, id);
+						String word = topic.topWordList.get(i).getIterm()
+								.toString();
+						mpWordToItem.put(word, id);
+						mpItemToWord.put(id, word);
+					}
+					transaction.add(id);
+					continue;
+				}
+				String word = topic.topWordList.get(i).getIterm().toString();
 				if (!mpWordToItem.containsKey(word)) {
 					mpWordToItem.put(word, mpWordToItem.size());
 				}
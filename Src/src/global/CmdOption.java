@@ -31,9 +31,75 @@ public class CmdOption {
 	@Option(name = "-svocab", usage = "Specify the suffix of input vocab file")
 	public String suffixInputCorporeaVocab = ".vocab";
 
+	@Option(name = "-kstore", usage = "Specify the knowledge store file shared "
+			+ "by the runs of the program, which keeps the must-links mined for "
+			+ "each domain (empty: no knowledge store)")
+	public String knowledgeStoreFilepath = "";
+
+	@Option(name = "-metrics", usage = "Print the timings and counts of each "
+			+ "domain into metrics.json and metrics.csv under the output root directory")
+	public boolean printMetrics = false;
+
+	@Option(name = "-jmx", usage = "Expose the metrics through JMX while running")
+	public boolean exposeMetricsThroughJMX = false;
+
 	@Option(name = "-nthreads", usage = "Specify the number of maximum threads in multithreading")
 	public int nthreads = 2;
 
+	@Option(name = "-nsamplers", usage = "Specify the number of document partitions "
+			+ "of each domain sampled in parallel (AMC only)")
+	public int nSamplerThreads = 1; // The partitions are sampled by the threads
+									// of the domain thread pool (nthreads as
+									// above) that have no domain to run.
+
+	@Option(name = "-nposteriorthreads", usage = "Specify the number of threads "
+			+ "computing the posterior distributions of each domain")
+	public int nPosteriorThreads = 1;
+
+	@Option(name = "-floatsums", usage = "Store the cumulative posterior "
+			+ "distributions (thetasum and phisum) as floats to halve their memory")
+	public boolean useFloatPosteriorSums = false;
+
+	@Option(name = "-dtstorage", usage = "Specify the storage of the "
+			+ "document-topic counts of LDA: dense, sparse or auto (sparse if the "
+			+ "documents have on average fewer than a quarter as many words as topics)")
+	public String documentTopicStorage = "auto";
+
+	@Option(name = "-floatcounts", usage = "Store the topic-word counts of AMC "
+			+ "(and their copy in each document partition) as floats to halve their memory")
+	public boolean useFloatTopicWordCounts = false;
+
+	@Option(name = "-vectorkernel", usage = "Compute the topic probabilities of "
+			+ "a token with the Vector API (needs java --add-modules "
+			+ "jdk.incubator.vector); the Markov chains differ from the default in "
+			+ "rounding")
+	public boolean useVectorizedKernel = false;
+
+	@Option(name = "-nwriters", usage = "Specify the number of threads printing "
+			+ "the models into the disk (0: print by the threads running the models)")
+	public int nPrintingThreads = 1;
+
+	@Option(name = "-membudget", usage = "Specify the memory budget (in MB) of "
+			+ "the models running or waiting for printing at the same time, as "
+			+ "estimated before they start "
+			+ "(0: no budget, run nthreads models at the same time)")
+	public int memoryBudget = 0;
+
+	@Option(name = "-pipeline", usage = "Start AMC on each domain as soon as the "
+			+ "LDA models it needs are ready instead of after LDA on all domains")
+	public boolean pipeline = false;
+
+	@Option(name = "-kdeadline", usage = "Specify the maximum number of seconds "
+			+ "(from the start of LDA) that AMC waits for the LDA models of other "
+			+ "domains in the pipeline; -1 waits for all domains")
+	public int knowledgeDeadline = -1;
+
+	@Option(name = "-deterministic", usage = "Make the output only depend on the "
+			+ "options (e.g., the random seed and -nsamplers), not on thread "
+			+ "scheduling or timing, so that two runs can be compared with "
+			+ "launch.OutputComparisonEntry (ignores -kdeadline)")
+	public boolean deterministic = false;
+
 	// ------------------------------------------------------------------------
 	// General Settings for Topic Model
 	// ------------------------------------------------------------------------
@@ -71,6 +137,11 @@ public class CmdOption {
 	@Option(name = "-rseed", usage = "Specify the seed for random number generator")
 	public int randomSeed = 837191;
 
+	@Option(name = "-rng", usage = "Specify the random number generator: Random "
+			+ "(java.util.Random), SplittableRandom, L64X128MixRandom, "
+			+ "Xoroshiro128PlusPlus or another java.util.random algorithm")
+	public String randomGeneratorName = "Random";
+
 	/******************* Output *********************/
 	@Option(name = "-twords", usage = "Specify the number of top words for each topic")
 	public int twords = 20; // Print out top words ranked by probabilities per
@@ -83,7 +154,21 @@ public class CmdOption {
 		cmdOption2.outputRootDirectory = this.outputRootDirectory;
 		cmdOption2.suffixInputCorporeaDocs = this.suffixInputCorporeaDocs;
 		cmdOption2.suffixInputCorporeaVocab = this.suffixInputCorporeaVocab;
+		cmdOption2.knowledgeStoreFilepath = this.knowledgeStoreFilepath;
+		cmdOption2.printMetrics = this.printMetrics;
+		cmdOption2.exposeMetricsThroughJMX = this.exposeMetricsThroughJMX;
 		cmdOption2.nthreads = this.nthreads;
+		cmdOption2.nSamplerThreads = this.nSamplerThreads;
+		cmdOption2.nPosteriorThreads = this.nPosteriorThreads;
+		cmdOption2.useFloatPosteriorSums = this.useFloatPosteriorSums;
+		cmdOption2.documentTopicStorage = this.documentTopicStorage;
+		cmdOption2.useFloatTopicWordCounts = this.useFloatTopicWordCounts;
+		cmdOption2.useVectorizedKernel = this.useVectorizedKernel;
+		cmdOption2.nPrintingThreads = this.nPrintingThreads;
+		cmdOption2.memoryBudget = this.memoryBudget;
+		cmdOption2.pipeline = this.pipeline;
+		cmdOption2.knowledgeDeadline = this.knowledgeDeadline;
+		cmdOption2.deterministic = this.deterministic;
 		cmdOption2.nTopics = this.nTopics;
 		cmdOption2.nBurnin = this.nBurnin;
 		cmdOption2.nIterations = this.nIterations;
@@ -92,6 +177,7 @@ public class CmdOption {
 		cmdOption2.alpha = this.alpha;
 		cmdOption2.beta = this.beta;
 		cmdOption2.randomSeed = this.randomSeed;
+		cmdOption2.randomGeneratorName = this.randomGeneratorName;
 		cmdOption2.twords = this.twords;
 		return cmdOption2;
 	}
@@ -0,0 +1,27 @@
+package global;
+
+import org.kohsuke.args4j.Option;
+
+/**
+ * Command line options of the output comparison (launch.OutputComparisonEntry),
+ * which checks that two runs of the program (e.g., with -deterministic) give
+ * the same output.
+ */
+public class ComparisonCmdOption {
+
+	@Option(name = "-a", required = true, usage = "Specify the output root "
+			+ "directory of the first run")
+	public String outputRootDirectoryA = null;
+
+	@Option(name = "-b", required = true, usage = "Specify the output root "
+			+ "directory of the second run")
+	public String outputRootDirectoryB = null;
+
+	@Option(name = "-suffixes", usage = "Specify the suffixes of the compared "
+			+ "files separated by commas, e.g., .tassign,.twdist (empty: all files)")
+	public String suffixes = "";
+
+	@Option(name = "-maxdiffs", usage = "Specify the maximum number of differences "
+			+ "printed")
+	public int maxDifferencesPrinted = 20;
+}
@@ -0,0 +1,71 @@
+package global;
+
+import org.kohsuke.args4j.Option;
+
+/**
+ * Command line options of the synthetic corpus generator
+ * (launch.CorpusGeneratorEntry).
+ * 
+ * The generator uses the same seed for the topics of every run, so running it
+ * twice with only different numbers of documents (e.g., 100 and 1000) produces
+ * the small and big datasets over the same domains and topics.
+ */
+public class GeneratorCmdOption {
+
+	// ------------------------------------------------------------------------
+	// Output
+	// ------------------------------------------------------------------------
+
+	@Option(name = "-o", usage = "Specify the output directory of the domains "
+			+ "(used as -ismall or -ibig of the program)")
+	public String outputDirectory = "../Data/Synthetic/1000Reviews/";
+
+	@Option(name = "-sdocs", usage = "Specify the suffix of output docs file")
+	public String suffixOutputCorporeaDocs = ".docs";
+
+	@Option(name = "-svocab", usage = "Specify the suffix of output vocab file")
+	public String suffixOutputCorporeaVocab = ".vocab";
+
+	@Option(name = "-twords", usage = "Specify the number of top words printed for "
+			+ "each true topic of a domain")
+	public int twords = 30;
+
+	// ------------------------------------------------------------------------
+	// Generative Process
+	// ------------------------------------------------------------------------
+
+	@Option(name = "-ndomains", usage = "Specify the number of domains")
+	public int nDomains = 50;
+
+	@Option(name = "-ndocs", usage = "Specify the number of documents in each domain")
+	public int nDocs = 1000;
+
+	@Option(name = "-nvocab", usage = "Specify the number of distinct words shared "
+			+ "by all domains")
+	public int nVocab = 10000;
+
+	@Option(name = "-ntopics", usage = "Specify the number of topics shared by all domains")
+	public int nTopics = 100;
+
+	@Option(name = "-ndomaintopics", usage = "Specify the number of topics in each "
+			+ "domain (drawn from the shared topics)")
+	public int nDomainTopics = 15;
+
+	@Option(name = "-doclength", usage = "Specify the mean length of the documents")
+	public int docLength = 30;
+
+	@Option(name = "-doclengthdist", usage = "Specify the distribution of the document "
+			+ "lengths: poisson, uniform (1 to 2 * mean - 1) or fixed")
+	public String docLengthDistribution = "poisson";
+
+	@Option(name = "-alpha", usage = "Specify the Dirichlet prior of the document-topic "
+			+ "distributions")
+	public double alpha = 0.1;
+
+	@Option(name = "-beta", usage = "Specify the Dirichlet prior of the topic-word "
+			+ "distributions")
+	public double beta = 0.01;
+
+	@Option(name = "-rseed", usage = "Specify the seed for random number generator")
+	public int randomSeed = 837191;
+}
@@ -0,0 +1,49 @@
+package global;
+
+import org.kohsuke.args4j.Option;
+
+/**
+ * Command line options of inferring the topics of new documents with a trained
+ * model (launch.InferenceEntry).
+ */
+public class InferenceCmdOption {
+
+	// ------------------------------------------------------------------------
+	// Input and Output
+	// ------------------------------------------------------------------------
+
+	@Option(name = "-model", required = true, usage = "Specify the directory of "
+			+ "the trained model of a domain, e.g., "
+			+ "../Data/Output/AMC/100Reviews/DomainModels/Camera/")
+	public String modelDirectory = null;
+
+	@Option(name = "-mname", usage = "Specify the name of the trained topic model")
+	public String modelName = "AMC";
+
+	@Option(name = "-idocs", required = true, usage = "Specify the docs file of "
+			+ "the new documents (same format as the input of the program)")
+	public String docsFilepath = null;
+
+	@Option(name = "-ivocab", required = true, usage = "Specify the vocab file "
+			+ "of the new documents")
+	public String vocabFilepath = null;
+
+	@Option(name = "-o", required = true, usage = "Specify the output file of "
+			+ "the document-topic distributions (same format as .dtopicdist)")
+	public String outputFilepath = null;
+
+	// ------------------------------------------------------------------------
+	// Inference
+	// ------------------------------------------------------------------------
+
+	@Option(name = "-niters", usage = "Specify the number of Gibbs sampling "
+			+ "iterations of each document")
+	public int nIterations = 50;
+
+	@Option(name = "-burnin", usage = "Specify the number of iterations for "
+			+ "burn-in period")
+	public int nBurnin = 20;
+
+	@Option(name = "-nthreads", usage = "Specify the number of threads")
+	public int nthreads = 2;
+}
@@ -0,0 +1,41 @@
+package global;
+
+import org.kohsuke.args4j.Option;
+
+/**
+ * Command line options of the query service over the trained models
+ * (launch.QueryServiceEntry).
+ */
+public class QueryServiceCmdOption {
+
+	@Option(name = "-models", usage = "Specify the directory containing the model "
+			+ "directory of each domain")
+	public String modelRootDirectory = "../Data/Output/AMC/100Reviews/DomainModels/";
+
+	@Option(name = "-mname", usage = "Specify the name of the trained topic model")
+	public String modelName = "AMC";
+
+	@Option(name = "-host", usage = "Specify the host name or address the service "
+			+ "listens on (empty: the loopback address, i.e., only the local host; "
+			+ "the service has no authentication)")
+	public String host = "";
+
+	@Option(name = "-port", usage = "Specify the port of the service")
+	public int port = 8080;
+
+	@Option(name = "-nthreads", usage = "Specify the number of threads answering the queries")
+	public int nthreads = 4;
+
+	@Option(name = "-cachemb", usage = "Specify the memory budget (in megabytes) "
+			+ "of the models cached in memory; the least recently used models "
+			+ "are evicted beyond it")
+	public int cacheMemoryBudgetInMB = 512;
+
+	@Option(name = "-niters", usage = "Specify the number of Gibbs sampling "
+			+ "iterations inferring each new document")
+	public int nInferenceIterations = 50;
+
+	@Option(name = "-burnin", usage = "Specify the number of iterations for burn-in "
+			+ "period inferring each new document")
+	public int nInferenceBurnin = 20;
+}
@@ -0,0 +1,66 @@
+package global;
+
+import org.kohsuke.args4j.Option;
+
+/**
+ * Command line options of updating the streaming LDA model of a domain with
+ * new documents (launch.StreamingEntry).
+ * 
+ * The model is created with the options below on the first run. On the next
+ * runs, it is loaded from the model directory with its own parameters, so only
+ * the input options are used.
+ */
+public class StreamingCmdOption {
+
+	// ------------------------------------------------------------------------
+	// Input and Output
+	// ------------------------------------------------------------------------
+
+	@Option(name = "-model", required = true, usage = "Specify the directory of "
+			+ "the streaming model of a domain (named by the domain), which is "
+			+ "created if it does not exist and updated otherwise")
+	public String modelDirectory = null;
+
+	@Option(name = "-idocs", required = true, usage = "Specify the docs file of "
+			+ "the new documents (same format as the input of the program)")
+	public String docsFilepath = null;
+
+	@Option(name = "-ivocab", required = true, usage = "Specify the vocab file "
+			+ "of the new documents")
+	public String vocabFilepath = null;
+
+	@Option(name = "-batchsize", usage = "Specify the number of documents in "
+			+ "each mini-batch (-1: all new documents in one mini-batch)")
+	public int batchSize = -1;
+
+	// ------------------------------------------------------------------------
+	// Settings for a new model
+	// ------------------------------------------------------------------------
+
+	@Option(name = "-ntopics", usage = "Specify the number of topics")
+	public int nTopics = 15;
+
+	@Option(name = "-niters", usage = "Specify the number of Gibbs sampling "
+			+ "iterations of each mini-batch")
+	public int nIterations = 200;
+
+	@Option(name = "-decay", usage = "Specify the factor multiplying the topic-word "
+			+ "counts of the old documents before each mini-batch (1: no decay)")
+	public double decay = 0.9;
+
+	@Option(name = "-alpha", usage = "Specify the hyperparamter alpha")
+	public double alpha = 1.0;
+
+	@Option(name = "-beta", usage = "Specify the hyperparamter beta")
+	public double beta = 0.1;
+
+	@Option(name = "-rseed", usage = "Specify the seed for random number generator")
+	public int randomSeed = 837191;
+
+	@Option(name = "-rng", usage = "Specify the random number generator (see -rng "
+			+ "of the program)")
+	public String randomGeneratorName = "Random";
+
+	@Option(name = "-twords", usage = "Specify the number of top words for each topic")
+	public int twords = 20;
+}
@@ -1,7 +1,6 @@
 package knowledge;
 
 import java.util.ArrayList;
-import java.util.PriorityQueue;
 
 import utility.ExceptionUtility;
 import fim.ItemSet;
@@ -25,6 +24,20 @@ public class KnowledgeExtractingAndProcessingForAMC {
 	public MustLinks extractMustLinks(Topics priorTopics, Corpus corpus,
 			int minimumSupport, double multipleMiniSupportPercentage,
 			double supportDifferenceConstraint) {
+		return filterMustLinks(
+				mineMustLinks(priorTopics, minimumSupport,
+						multipleMiniSupportPercentage,
+						supportDifferenceConstraint), corpus);
+	}
+
+	/**
+	 * Mine the must-links from the prior topics, regardless of the words in
+	 * the corpus. The result only depends on the prior topics and the
+	 * parameters, so it can be kept in the KnowledgeStore.
+	 */
+	public MustLinks mineMustLinks(Topics priorTopics, int minimumSupport,
+			double multipleMiniSupportPercentage,
+			double supportDifferenceConstraint) {
 		// Convert topics into transactions.
 		Transactions transactions = new Transactions(priorTopics);
 		// Run MS-Apriori algorithm.
@@ -43,47 +56,64 @@ public class KnowledgeExtractingAndProcessingForAMC {
 						.get(0));
 				String wordstr2 = transactions.mpItemToWord.get(freqItemSet
 						.get(1));
-				if (corpus.vocab.containsWordstr(wordstr1)
-						&& corpus.vocab.containsWordstr(wordstr2)) {
-					// We remain both words when they appear in the corpus.
-					int support = freqItemSet.support;
-					MustLink mustlink = new MustLink(wordstr1, wordstr2,
-							support);
-					mustLinks.addMustLink(mustlink);
-				}
+				int support = freqItemSet.support;
+				MustLink mustlink = new MustLink(wordstr1, wordstr2, support);
+				mustLinks.addMustLink(mustlink);
 			}
 		}
 
 		return mustLinks;
 	}
 
+	/**
+	 * Keep the must-links whose words both appear in the corpus.
+	 */
+	public MustLinks filterMustLinks(MustLinks minedMustLinks, Corpus corpus) {
+		MustLinks mustLinks = new MustLinks();
+		for (MustLink mustlink : minedMustLinks) {
+			if (corpus.vocab.containsWordstr(mustlink.wordpair.wordstr1)
+					&& corpus.vocab.containsWordstr(mustlink.wordpair.wordstr2)) {
+				// We remain both words when they appear in the corpus.
+				mustLinks.addMustLink(mustlink);
+			}
+		}
+		return mustLinks;
+	}
+
 	/**
 	 * Extract cannot-links by enumerating each pair of top words under topics.
 	 */
 	public CannotLinks extractCannotLinks(
-			ArrayList<PriorityQueue<Integer>> topWordIDList,
+			int[][] topWordIDList,
 			Topics priorTopicsForKnowledgeExtraction, Corpus corpus,
 			double supportRatioForCannotLink, int supportThresholdForCannotLink) {
 		CannotLinks cannotLinks = new CannotLinks();
-		for (int t = 0; t < topWordIDList.size(); ++t) {
-			PriorityQueue<Integer> pqueue = topWordIDList.get(t);
-			ArrayList<Integer> topWordIDs = new ArrayList<Integer>();
-			// The first word has the lowest probability and the last word has
-			// the highest probability.
-			while (!pqueue.isEmpty()) {
-				topWordIDs.add(pqueue.poll());
-			}
-			for (int i = topWordIDs.size() - 1; i >= 0; --i) {
-				int wordid1 = topWordIDs.get(i);
-				for (int j = topWordIDs.size() - 1; j >= i + 1; --j) {
-					int wordid2 = topWordIDs.get(j);
+		// Compare the words as global word ids if both the corpus and the
+		// prior topics have them.
+		boolean useGlobalWordids = corpus.globalVocabulary != null
+				&& priorTopicsForKnowledgeExtraction.hasGlobalWordids();
+		for (int t = 0; t < topWordIDList.length; ++t) {
+			// The first word has the highest probability and the last word has
+			// the lowest probability.
+			int[] topWordIDs = topWordIDList[t];
+			for (int i = 0; i < topWordIDs.length; ++i) {
+				int wordid1 = topWordIDs[i];
+				for (int j = 0; j < i; ++j) {
+					int wordid2 = topWordIDs[j];
 					String wordstr1 = corpus.vocab.getWordstrByWordid(wordid1);
 					String wordstr2 = corpus.vocab.getWordstrByWordid(wordid2);
 
-					if (isCannotLink(wordstr1, wordstr2,
+					boolean isCannotLink = useGlobalWordids ? isCannotLink(
+							corpus.getGlobalWordid(wordid1),
+							corpus.getGlobalWordid(wordid2),
+							priorTopicsForKnowledgeExtraction,
+							supportRatioForCannotLink,
+							supportThresholdForCannotLink) : isCannotLink(
+							wordstr1, wordstr2,
 							priorTopicsForKnowledgeExtraction,
 							supportRatioForCannotLink,
-							supportThresholdForCannotLink)) {
+							supportThresholdForCannotLink);
+					if (isCannotLink) {
 						CannotLink cannotLink = new CannotLink(wordstr1,
 								wordstr2);
 						cannotLinks.addCannotLink(cannotLink);
@@ -144,4 +174,58 @@ public class KnowledgeExtractingAndProcessingForAMC {
 			return false;
 		}
 	}
+
+	/**
+	 * Check if two words (global word ids) form a cannot-link, in the same way
+	 * as isCannotLink() of the words.
+	 */
+	private boolean isCannotLink(int globalWordid1, int globalWordid2,
+			Topics priorTopicsForKnowledgeExtraction,
+			double supportRatioForCannotLink, int supportThresholdForCannotLink) {
+		int coDomainFreq = 0;
+		int diffDomainFreq = 0;
+		int index = 0;
+		while (index < priorTopicsForKnowledgeExtraction.topicList.size()) {
+			String currentDomain = priorTopicsForKnowledgeExtraction.topicList
+					.get(index).domain;
+			int freq1 = 0;
+			int freq2 = 0;
+			int coFreq = 0;
+			// Enumerate all topics in this domain.
+			while (index < priorTopicsForKnowledgeExtraction.topicList.size()
+					&& priorTopicsForKnowledgeExtraction.topicList.get(index).domain
+							.equals(currentDomain)) {
+				// We assume that the topics of the same domain are put together
+				// in the priorTopicsForKnowledgeExtraction.
+				Topic topic = priorTopicsForKnowledgeExtraction.topicList
+						.get(index);
+				boolean wordAppear1 = topic
+						.containsGlobalWordid(globalWordid1);
+				boolean wordAppear2 = topic
+						.containsGlobalWordid(globalWordid2);
+				if (wordAppear1 && wordAppear2) {
+					++coFreq;
+				} else if (wordAppear1) {
+					++freq1;
+				} else if (wordAppear2) {
+					++freq2;
+				}
+				++index;
+			}
+			if (coFreq > 0) {
+				// Both words appear in the same topic.
+				++coDomainFreq;
+			} else if (freq1 > 0 && freq2 > 0) {
+				// Both words appear in the different topics.
+				++diffDomainFreq;
+			}
+		}
+		double ratio = 1.0 * diffDomainFreq / (diffDomainFreq + coDomainFreq);
+		if (ratio >= supportRatioForCannotLink
+				&& diffDomainFreq >= supportThresholdForCannotLink) {
+			return true;
+		} else {
+			return false;
+		}
+	}
 }
@@ -0,0 +1,340 @@
+package knowledge;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import nlp.Topic;
+import nlp.Topics;
+import utility.ExceptionUtility;
+import utility.ItemWithValue;
+
+/**
+ * A persistent store of the knowledge (must-links) of AMC, shared by the runs
+ * of the program, so that a run does not mine the must-links again if the
+ * prior topics have not changed since the last run.
+ *
+ * The store has a section for each domain and each version of the prior
+ * topics of the domain. The version is a stamp (see getStamp()) of the prior
+ * topics (i.e., the top words of the topics of the other domains) and the
+ * parameters of MS-Apriori, so a section is only used when the must-links
+ * mined from the same prior topics would be exactly the same. The must-links
+ * are stored before they are filtered by the vocabulary of the domain (see
+ * KnowledgeExtractingAndProcessingForAMC.filterMustLinks()). The cannot-links
+ * are not stored, since they are extracted from the topics of the current
+ * run.
+ *
+ * Only the latest MAXIMUM_NOOF_SECTIONS_OF_DOMAIN sections (by the time they
+ * were last used) of each domain are kept, since the whole file is read by
+ * every run, and the words of the removed sections are dropped when the file
+ * is written.
+ *
+ * The binary file contains a table of the words (so the links are stored as
+ * pairs of word ids), followed by the sections from the least recently used
+ * one:
+ *
+ * magic, format version, #words, words, #sections, and for each section:
+ * domain, stamp, prior domains, #must-links, (word id 1, word id 2, support).
+ *
+ * The methods are synchronized since AMC runs on several domains in parallel.
+ */
+public class KnowledgeStore {
+	private static final int MAGIC = 0x414d434b; // "AMCK"
+	private static final int FORMAT_VERSION = 2;
+	// The first format version, which also stored the cannot-links (they are
+	// skipped when the file is read).
+	private static final int FORMAT_VERSION_WITH_CANNOT_LINKS = 1;
+	// The number of sections (i.e., versions of the prior topics) kept for
+	// each domain.
+	private static final int MAXIMUM_NOOF_SECTIONS_OF_DOMAIN = 4;
+
+	private String filepath = null;
+
+	// The word table: word id -> word and word -> word id.
+	private ArrayList<String> wordstrs = new ArrayList<String>();
+	private Map<String, Integer> wordstrToWordidMap = new HashMap<String, Integer>();
+
+	// (domain, stamp) -> section, from the least recently used one.
+	private LinkedHashMap<String, Section> sections = new LinkedHashMap<String, Section>();
+
+	/**
+	 * The knowledge of a domain given a version of its prior topics.
+	 */
+	private static class Section {
+		private String domain = null;
+		private long stamp = 0;
+		private ArrayList<String> priorDomains = new ArrayList<String>();
+		// Must-links: {word id 1, word id 2, support}.
+		private ArrayList<int[]> mustLinks = new ArrayList<int[]>();
+	}
+
+	private KnowledgeStore(String filepath2) {
+		filepath = filepath2;
+	}
+
+	/**
+	 * Open the store in the file, which is created by save() if it does not
+	 * exist.
+	 */
+	public static KnowledgeStore open(String filepath) {
+		KnowledgeStore store = new KnowledgeStore(filepath);
+		if (new File(filepath).exists()) {
+			try {
+				store.load();
+			} catch (Exception ex) {
+				// Start with an empty store rather than stop the program.
+				System.out.println("Cannot read the knowledge store "
+						+ filepath + ": " + ex.getMessage());
+				store = new KnowledgeStore(filepath);
+			}
+		}
+		return store;
+	}
+
+	/**
+	 * Get the stamp of the prior topics given the parameters of MS-Apriori: a
+	 * 64-bit FNV-1a hash of the parameters and the domain and top words (in
+	 * order) of each prior topic.
+	 */
+	public static long getStamp(Topics priorTopics, int minimumSupport,
+			double multipleMiniSupportPercentage,
+			double supportDifferenceConstraint) {
+		StringBuilder sbTopics = new StringBuilder();
+		sbTopics.append(minimumSupport).append(' ')
+				.append(multipleMiniSupportPercentage).append(' ')
+				.append(supportDifferenceConstraint).append('\n');
+		for (Topic topic : priorTopics) {
+			sbTopics.append(topic.domain).append('\t');
+			for (ItemWithValue iwv : topic.topWordList) {
+				sbTopics.append(iwv.getIterm().toString()).append(' ');
+			}
+			sbTopics.append('\n');
+		}
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : sbTopics.toString().getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Get the domains of the prior topics, sorted alphabetically.
+	 */
+	public static ArrayList<String> getDomains(Topics priorTopics) {
+		TreeSet<String> domains = new TreeSet<String>();
+		for (Topic topic : priorTopics) {
+			domains.add(topic.domain);
+		}
+		return new ArrayList<String>(domains);
+	}
+
+	/**
+	 * Get the must-links (before the vocabulary filter) of the domain mined
+	 * from the prior topics with the stamp, or null if they are not stored.
+	 */
+	public synchronized MustLinks getMustLinks(String domain, long stamp) {
+		Section section = sections.remove(getKey(domain, stamp));
+		if (section == null) {
+			return null;
+		}
+		// The section is now the most recently used one.
+		sections.put(getKey(domain, stamp), section);
+		MustLinks mustLinks = new MustLinks();
+		for (int[] mustLink : section.mustLinks) {
+			mustLinks.addMustLink(new MustLink(wordstrs.get(mustLink[0]),
+					wordstrs.get(mustLink[1]), mustLink[2]));
+		}
+		return mustLinks;
+	}
+
+	/**
+	 * Put the must-links (before the vocabulary filter) of the domain mined
+	 * from the prior topics with the stamp, replacing the stored ones. The
+	 * least recently used section of the domain is removed if the domain has
+	 * too many sections.
+	 */
+	public synchronized void putMustLinks(String domain, long stamp,
+			ArrayList<String> priorDomains, MustLinks mustLinks) {
+		Section section = new Section();
+		section.domain = domain;
+		section.stamp = stamp;
+		section.priorDomains = new ArrayList<String>(priorDomains);
+		for (MustLink mustLink : mustLinks) {
+			section.mustLinks.add(new int[] {
+					getWordid(mustLink.wordpair.wordstr1),
+					getWordid(mustLink.wordpair.wordstr2),
+					(int) mustLink.weight });
+		}
+		sections.remove(getKey(domain, stamp));
+		addSection(section);
+	}
+
+	/**
+	 * Add the section as the most recently used one, and remove the least
+	 * recently used sections of its domain beyond
+	 * MAXIMUM_NOOF_SECTIONS_OF_DOMAIN.
+	 */
+	private void addSection(Section section) {
+		sections.put(getKey(section.domain, section.stamp), section);
+		int noofSectionsOfDomain = 0;
+		for (Section other : sections.values()) {
+			if (other.domain.equals(section.domain)) {
+				++noofSectionsOfDomain;
+			}
+		}
+		Iterator<Section> iterator = sections.values().iterator();
+		while (noofSectionsOfDomain > MAXIMUM_NOOF_SECTIONS_OF_DOMAIN) {
+			Section other = iterator.next();
+			if (other.domain.equals(section.domain)) {
+				iterator.remove();
+				--noofSectionsOfDomain;
+			}
+		}
+	}
+
+	private int getWordid(String wordstr) {
+		Integer wordid = wordstrToWordidMap.get(wordstr);
+		if (wordid == null) {
+			wordid = wordstrs.size();
+			wordstrs.add(wordstr);
+			wordstrToWordidMap.put(wordstr, wordid);
+		}
+		return wordid;
+	}
+
+	private static String getKey(String domain, long stamp) {
+		return domain + "\t" + Long.toHexString(stamp);
+	}
+
+	// ------------------------------------------------------------------------
+	// File
+	// ------------------------------------------------------------------------
+
+	private void load() throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(filepath)));
+		try {
+			ExceptionUtility.assertAsException(input.readInt() == MAGIC,
+					"The file is not a knowledge store!");
+			int formatVersion = input.readInt();
+			ExceptionUtility.assertAsException(
+					formatVersion == FORMAT_VERSION
+							|| formatVersion == FORMAT_VERSION_WITH_CANNOT_LINKS,
+					"Unknown format version of the knowledge store: "
+							+ formatVersion);
+
+			int noofWords = input.readInt();
+			for (int i = 0; i < noofWords; ++i) {
+				getWordid(input.readUTF());
+			}
+
+			int noofSections = input.readInt();
+			for (int s = 0; s < noofSections; ++s) {
+				Section section = new Section();
+				section.domain = input.readUTF();
+				section.stamp = input.readLong();
+				int noofPriorDomains = input.readInt();
+				for (int i = 0; i < noofPriorDomains; ++i) {
+					section.priorDomains.add(input.readUTF());
+				}
+				// -1 if the must-links were not mined (the first format).
+				int noofMustLinks = input.readInt();
+				for (int i = 0; i < noofMustLinks; ++i) {
+					section.mustLinks.add(new int[] { input.readInt(),
+							input.readInt(), input.readInt() });
+				}
+				if (formatVersion == FORMAT_VERSION_WITH_CANNOT_LINKS) {
+					int noofCannotLinks = input.readInt();
+					for (int i = 0; i < noofCannotLinks; ++i) {
+						input.readLong();
+					}
+				}
+				if (noofMustLinks >= 0) {
+					addSection(section);
+				}
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Write the store into its file. The file is written into a temporary file
+	 * first and then renamed, so a failed write does not corrupt the store.
+	 */
+	public synchronized void save() {
+		try {
+			File file = new File(filepath);
+			File parent = file.getAbsoluteFile().getParentFile();
+			if (parent != null) {
+				parent.mkdirs();
+			}
+			File temporaryFile = new File(filepath + ".tmp");
+			DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(
+							temporaryFile)));
+			try {
+				output.writeInt(MAGIC);
+				output.writeInt(FORMAT_VERSION);
+
+				// Only write the words of the sections kept, renumbered in
+				// the order they first appear.
+				int[] newWordids = new int[wordstrs.size()];
+				Arrays.fill(newWordids, -1);
+				ArrayList<String> usedWordstrs = new ArrayList<String>();
+				for (Section section : sections.values()) {
+					for (int[] mustLink : section.mustLinks) {
+						for (int i = 0; i < 2; ++i) {
+							if (newWordids[mustLink[i]] < 0) {
+								newWordids[mustLink[i]] = usedWordstrs.size();
+								usedWordstrs.add(wordstrs.get(mustLink[i]));
+							}
+						}
+					}
+				}
+				output.writeInt(usedWordstrs.size());
+				for (String wordstr : usedWordstrs) {
+					output.writeUTF(wordstr);
+				}
+
+				output.writeInt(sections.size());
+				for (Section section : sections.values()) {
+					output.writeUTF(section.domain);
+					output.writeLong(section.stamp);
+					output.writeInt(section.priorDomains.size());
+					for (String priorDomain : section.priorDomains) {
+						output.writeUTF(priorDomain);
+					}
+					output.writeInt(section.mustLinks.size());
+					for (int[] mustLink : section.mustLinks) {
+						output.writeInt(newWordids[mustLink[0]]);
+						output.writeInt(newWordids[mustLink[1]]);
+						output.writeInt(mustLink[2]);
+					}
+				}
+			} finally {
+				output.close();
+			}
+			Files.move(temporaryFile.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+	}
+}
@@ -5,6 +5,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 import utility.ItemWithValue;
+import utility.LongHashMap;
+import nlp.GlobalVocabulary;
 import nlp.Topic;
 import nlp.Topics;
 
@@ -12,14 +14,39 @@ import nlp.Topics;
  * Record the list of topics that each must-link is extracted from, used to
  * compute how much topic overlapping two must-links have to construct the
  * must-link graph.
+ *
+ * If the topics have global word ids, the must-links are keyed by the pair of
+ * global word ids (packed into a long) instead of the concatenation of the
+ * words. When comparing many pairs of must-links (e.g., building the must-link
+ * graph), get the topic list of each must-link once by getTopicList().
  */
 public class TopicOverlappingOfMustLinks {
 	private Topics topics = null;
 	private Map<String, ArrayList<Topic>> mpMustLinkToTopicList = null;
+	private GlobalVocabulary globalVocabulary = null;
+	private LongHashMap<ArrayList<Topic>> mpGlobalWordidPairToTopicList = null;
 
 	public TopicOverlappingOfMustLinks(Topics topics2) {
 		topics = topics2;
+		indexByLinkedWords();
+	}
+
+	/**
+	 * Use the global word ids of the topics if the global vocabulary is not
+	 * null and the topics have them.
+	 */
+	public TopicOverlappingOfMustLinks(Topics topics2,
+			GlobalVocabulary globalVocabulary2) {
+		topics = topics2;
+		if (globalVocabulary2 != null && topics.hasGlobalWordids()) {
+			globalVocabulary = globalVocabulary2;
+			indexByGlobalWordidPairs();
+		} else {
+			indexByLinkedWords();
+		}
+	}
 
+	private void indexByLinkedWords() {
 		mpMustLinkToTopicList = new HashMap<String, ArrayList<Topic>>();
 		for (Topic topic : topics) {
 			ArrayList<ItemWithValue> itemList = topic.topWordList;
@@ -38,24 +65,53 @@ public class TopicOverlappingOfMustLinks {
 		}
 	}
 
-	public int getTopicOverlappingCount(MustLink mustLink1, MustLink mustLink2) {
-		ArrayList<Topic> topicList1 = null;
-		ArrayList<Topic> topicList2 = null;
+	private void indexByGlobalWordidPairs() {
+		mpGlobalWordidPairToTopicList = new LongHashMap<ArrayList<Topic>>();
+		for (Topic topic : topics) {
+			int[] globalWordids = topic.globalWordids;
+			for (int i = 1; i < globalWordids.length; ++i) {
+				for (int j = 0; j < i; ++j) {
+					long pair = getGlobalWordidPair(globalWordids[i],
+							globalWordids[j]);
+					ArrayList<Topic> topicList = mpGlobalWordidPairToTopicList
+							.get(pair);
+					if (topicList == null) {
+						topicList = new ArrayList<Topic>();
+						mpGlobalWordidPairToTopicList.put(pair, topicList);
+					}
+					topicList.add(topic);
+				}
+			}
+		}
+	}
 
-		String linkedWord1 = getLinkedWords(mustLink1);
-		String linkedWord2 = getLinkedWords(mustLink2);
+	public int getTopicOverlappingCount(MustLink mustLink1, MustLink mustLink2) {
+		return getTopicOverlappingCount(getTopicList(mustLink1),
+				getTopicList(mustLink2));
+	}
 
-		if (mpMustLinkToTopicList.containsKey(linkedWord1)) {
-			topicList1 = mpMustLinkToTopicList.get(linkedWord1);
-		}
-		if (mpMustLinkToTopicList.containsKey(linkedWord2)) {
-			topicList2 = mpMustLinkToTopicList.get(linkedWord2);
+	/**
+	 * Get the list of topics that the must-link is extracted from.
+	 */
+	public ArrayList<Topic> getTopicList(MustLink mustLink) {
+		ArrayList<Topic> topicList = null;
+		if (mpGlobalWordidPairToTopicList != null) {
+			topicList = mpGlobalWordidPairToTopicList
+					.get(getGlobalWordidPair(mustLink));
+		} else {
+			topicList = mpMustLinkToTopicList.get(getLinkedWords(mustLink));
 		}
-		// The weight of the must-link is support, and thus the following two
-		// statements should be true.
-		assert (Math.abs(mustLink1.weight - topicList1.size()) < 1e-6);
-		assert (Math.abs(mustLink2.weight - topicList2.size()) < 1e-6);
+		// The weight of the must-link is support, and thus the following
+		// statement should be true.
+		assert (Math.abs(mustLink.weight - topicList.size()) < 1e-6);
+		return topicList;
+	}
 
+	/**
+	 * Get the number of topics shared by the topic lists of two must-links.
+	 */
+	public int getTopicOverlappingCount(ArrayList<Topic> topicList1,
+			ArrayList<Topic> topicList2) {
 		int topicOverlappingCount = 0;
 		for (Topic topic1 : topicList1) {
 			for (Topic topic2 : topicList2) {
@@ -68,6 +124,21 @@ public class TopicOverlappingOfMustLinks {
 		return topicOverlappingCount;
 	}
 
+	/**
+	 * Get the key of the pair of global word ids (the smaller id first).
+	 */
+	private long getGlobalWordidPair(int globalWordid1, int globalWordid2) {
+		int min = Math.min(globalWordid1, globalWordid2);
+		int max = Math.max(globalWordid1, globalWordid2);
+		return ((long) min << 32) | max;
+	}
+
+	private long getGlobalWordidPair(MustLink mustLink) {
+		return getGlobalWordidPair(
+				globalVocabulary.getGlobalWordid(mustLink.wordpair.wordstr1),
+				globalVocabulary.getGlobalWordid(mustLink.wordpair.wordstr2));
+	}
+
 	public String getLinkedWords(MustLink mustLink) {
 		return getLinkedWords(mustLink.wordpair.wordstr1,
 				mustLink.wordpair.wordstr2);
@@ -0,0 +1,46 @@
+package launch;
+
+import global.GeneratorCmdOption;
+import nlp.SyntheticCorpusGenerator;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+
+/**
+ * The entry of the synthetic corpus generator. The generated domains can be
+ * used as the input of the program (launch.MainEntry) for scale testing, e.g.,
+ * generate the small and big datasets with -ndocs 100 and -ndocs 1000.
+ */
+public class CorpusGeneratorEntry {
+	public static void main(String[] args) {
+		GeneratorCmdOption cmdOption = new GeneratorCmdOption();
+		CmdLineParser parser = new CmdLineParser(cmdOption);
+
+		try {
+			long startTime = System.currentTimeMillis();
+			System.out.println("Generator Starts.");
+
+			// Parse the arguments.
+			parser.parseArgument(args);
+
+			SyntheticCorpusGenerator generator = new SyntheticCorpusGenerator(
+					cmdOption);
+			generator.run();
+
+			System.out.println("Generator Ends.");
+			long endTime = System.currentTimeMillis();
+			System.out.println("Elapsed time: "
+					+ String.format("%.3f", (endTime - startTime) / 1000.0)
+					+ " seconds");
+		} catch (CmdLineException cle) {
+			System.out.println("Command line error: " + cle.getMessage());
+			System.out.println("java [options ...] [arguments...]");
+			parser.printUsage(System.out);
+			return;
+		} catch (Exception e) {
+			System.out.println("Error in program: " + e.getMessage());
+			e.printStackTrace();
+			return;
+		}
+	}
+}
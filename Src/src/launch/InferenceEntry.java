@@ -0,0 +1,67 @@
+package launch;
+
+import java.io.File;
+
+import global.InferenceCmdOption;
+import model.ModelLoader;
+import model.ModelPrinter;
+import model.TopicInferencer;
+import model.TopicModel;
+import nlp.Corpus;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+
+/**
+ * The entry of inferring the document-topic distributions of new documents of
+ * a domain with the model trained by the program (launch.MainEntry), e.g., for
+ * new reviews, without retraining the models. The topic-word distribution of
+ * the model is fixed.
+ */
+public class InferenceEntry {
+	public static void main(String[] args) {
+		InferenceCmdOption cmdOption = new InferenceCmdOption();
+		CmdLineParser parser = new CmdLineParser(cmdOption);
+
+		try {
+			long startTime = System.currentTimeMillis();
+
+			// Parse the arguments.
+			parser.parseArgument(args);
+
+			// The model directory is named by the domain.
+			File modelDirectory = new File(cmdOption.modelDirectory);
+			String domain = modelDirectory.getName();
+			TopicModel model = new ModelLoader().loadModel(
+					cmdOption.modelName, domain,
+					modelDirectory.getPath() + File.separator);
+			if (model == null) {
+				System.err.println("The model cannot be loaded, program exits!");
+				return;
+			}
+
+			Corpus corpus = Corpus.getCorpusFromFile(domain,
+					cmdOption.docsFilepath, cmdOption.vocabFilepath);
+			TopicInferencer inferencer = new TopicInferencer(model,
+					cmdOption.nIterations, cmdOption.nBurnin);
+			double[][] theta = inferencer.inferDocumentTopicDistributions(
+					corpus, cmdOption.nthreads);
+			ModelPrinter.printDocumentTopicDistribution(theta,
+					cmdOption.outputFilepath);
+
+			long endTime = System.currentTimeMillis();
+			System.out.println(theta.length + " documents inferred in "
+					+ String.format("%.3f", (endTime - startTime) / 1000.0)
+					+ " seconds.");
+		} catch (CmdLineException cle) {
+			System.out.println("Command line error: " + cle.getMessage());
+			System.out.println("java [options ...] [arguments...]");
+			parser.printUsage(System.out);
+			return;
+		} catch (Exception e) {
+			System.out.println("Error in program: " + e.getMessage());
+			e.printStackTrace();
+			return;
+		}
+	}
+}
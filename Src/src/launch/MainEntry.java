@@ -24,6 +24,8 @@ import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 
 import task.AMCModelRunningTask;
+import utility.RandomNumberGenerators;
+import utility.TopicProbabilityKernel;
 
 /**
  * The main entry of the program.
@@ -39,6 +41,17 @@ public class MainEntry {
 
 			// Parse the arguments.
 			parser.parseArgument(args);
+			if (!RandomNumberGenerators
+					.isRecognizable(cmdOption.randomGeneratorName)) {
+				throw new CmdLineException(parser,
+						"The random number generator is not recognizable: "
+								+ cmdOption.randomGeneratorName);
+			}
+			if (cmdOption.useVectorizedKernel
+					&& !TopicProbabilityKernel.isVectorizationAvailable()) {
+				throw new CmdLineException(parser,
+						"-vectorkernel needs java --add-modules jdk.incubator.vector");
+			}
 
 			// Check if the input directory is valid.
 			if (new File(cmdOption.input100ReviewCorporeaDirectory).listFiles() == null
@@ -59,7 +72,7 @@ public class MainEntry {
 		} catch (CmdLineException cle) {
 			System.out.println("Command line error: " + cle.getMessage());
 			showCommandLineHelp(parser);
-			return;
+			System.exit(2);
 		} catch (Exception e) {
 			System.out.println("Error in program: " + e.getMessage());
 			e.printStackTrace();
@@ -0,0 +1,40 @@
+package launch;
+
+import global.ComparisonCmdOption;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+
+import task.OutputComparingTask;
+
+/**
+ * The entry of comparing the output of two runs of the program
+ * (launch.MainEntry). It exits with status 1 if the outputs differ, so it can
+ * be used in scripts, e.g., to A/B test a change of performance with the same
+ * options and -deterministic.
+ */
+public class OutputComparisonEntry {
+	public static void main(String[] args) {
+		ComparisonCmdOption cmdOption = new ComparisonCmdOption();
+		CmdLineParser parser = new CmdLineParser(cmdOption);
+
+		int noofDifferences = 0;
+		try {
+			// Parse the arguments.
+			parser.parseArgument(args);
+
+			OutputComparingTask task = new OutputComparingTask(cmdOption);
+			noofDifferences = task.run();
+		} catch (CmdLineException cle) {
+			System.out.println("Command line error: " + cle.getMessage());
+			System.out.println("java [options ...] [arguments...]");
+			parser.printUsage(System.out);
+			System.exit(2);
+		} catch (Exception e) {
+			System.out.println("Error in program: " + e.getMessage());
+			e.printStackTrace();
+			System.exit(2);
+		}
+		System.exit(noofDifferences == 0 ? 0 : 1);
+	}
+}
@@ -0,0 +1,53 @@
+package launch;
+
+import global.QueryServiceCmdOption;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+
+import service.ModelCache;
+import service.QueryService;
+
+/**
+ * The entry of the query service over the models trained by the program
+ * (launch.MainEntry). The service runs until the program is stopped.
+ */
+public class QueryServiceEntry {
+	public static void main(String[] args) {
+		QueryServiceCmdOption cmdOption = new QueryServiceCmdOption();
+		CmdLineParser parser = new CmdLineParser(cmdOption);
+
+		try {
+			// Parse the arguments.
+			parser.parseArgument(args);
+
+			ModelCache modelCache = new ModelCache(
+					cmdOption.modelRootDirectory, cmdOption.modelName,
+					cmdOption.cacheMemoryBudgetInMB * 1024L * 1024L,
+					cmdOption.nInferenceIterations, cmdOption.nInferenceBurnin);
+			final QueryService service = new QueryService(modelCache,
+					cmdOption.nthreads);
+			service.start(cmdOption.host, cmdOption.port);
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					service.stop(1);
+				}
+			});
+			System.out.println("Query service started on "
+					+ (cmdOption.host.length() == 0 ? "the local host"
+							: cmdOption.host) + " port " + cmdOption.port
+					+ " over "
+					+ modelCache.getDomains().size() + " domains.");
+		} catch (CmdLineException cle) {
+			System.out.println("Command line error: " + cle.getMessage());
+			System.out.println("java [options ...] [arguments...]");
+			parser.printUsage(System.out);
+			return;
+		} catch (Exception e) {
+			System.out.println("Error in program: " + e.getMessage());
+			e.printStackTrace();
+			return;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package launch;
+
+import java.io.File;
+import java.util.Arrays;
+
+import global.StreamingCmdOption;
+import model.ModelLoader;
+import model.ModelParameters;
+import model.ModelPrinter;
+import model.StreamingLDA;
+import model.TopicModel;
+import nlp.Corpus;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+
+import utility.RandomNumberGenerators;
+
+/**
+ * The entry of updating the streaming LDA model (model.StreamingLDA) of a
+ * domain with new documents, e.g., the reviews of each day, without rerunning
+ * the models on the old documents. The model is printed into its directory
+ * after the update and loaded from there on the next run.
+ */
+public class StreamingEntry {
+	public static void main(String[] args) {
+		StreamingCmdOption cmdOption = new StreamingCmdOption();
+		CmdLineParser parser = new CmdLineParser(cmdOption);
+
+		try {
+			long startTime = System.currentTimeMillis();
+
+			// Parse the arguments.
+			parser.parseArgument(args);
+			if (!RandomNumberGenerators
+					.isRecognizable(cmdOption.randomGeneratorName)) {
+				throw new CmdLineException(parser,
+						"The random number generator is not recognizable: "
+								+ cmdOption.randomGeneratorName);
+			}
+
+			// The model directory is named by the domain.
+			File modelDirectory = new File(cmdOption.modelDirectory);
+			String domain = modelDirectory.getName();
+			String outputDirectory = modelDirectory.getPath() + File.separator;
+			Corpus corpus = Corpus.getCorpusFromFile(domain,
+					cmdOption.docsFilepath, cmdOption.vocabFilepath);
+
+			StreamingLDA model = null;
+			if (new File(outputDirectory + domain
+					+ ModelPrinter.topicWordCountsSuffix).exists()) {
+				TopicModel loadedModel = new ModelLoader().loadModel(
+						"StreamingLDA", domain, outputDirectory);
+				if (loadedModel == null) {
+					System.err
+							.println("The model cannot be loaded, program exits!");
+					return;
+				}
+				model = (StreamingLDA) loadedModel;
+			} else {
+				model = new StreamingLDA(new Corpus(domain),
+						getModelParameters(cmdOption, domain, outputDirectory));
+			}
+
+			// Update the model with each mini-batch.
+			int D = corpus.docs.length;
+			int batchSize = cmdOption.batchSize > 0 ? cmdOption.batchSize : D;
+			for (int start = 0; start < D; start += batchSize) {
+				int end = Math.min(start + batchSize, D);
+				Corpus batch = new Corpus(domain);
+				batch.vocab = corpus.vocab;
+				batch.docs = Arrays.copyOfRange(corpus.docs, start, end);
+				model.update(batch);
+			}
+
+			if (D > 0) {
+				modelDirectory.mkdirs();
+				ModelPrinter modelPrinter = new ModelPrinter(model);
+				modelPrinter.printModel(outputDirectory);
+			}
+
+			long endTime = System.currentTimeMillis();
+			System.out.println(D + " documents added in "
+					+ String.format("%.3f", (endTime - startTime) / 1000.0)
+					+ " seconds (" + model.param.noofStreamingBatches
+					+ " mini-batches in total).");
+		} catch (CmdLineException cle) {
+			System.out.println("Command line error: " + cle.getMessage());
+			System.out.println("java [options ...] [arguments...]");
+			parser.printUsage(System.out);
+			System.exit(2);
+		} catch (Exception e) {
+			System.out.println("Error in program: " + e.getMessage());
+			e.printStackTrace();
+			return;
+		}
+	}
+
+	private static ModelParameters getModelParameters(
+			StreamingCmdOption cmdOption, String domain, String outputDirectory) {
+		ModelParameters param = new ModelParameters();
+		param.modelName = "StreamingLDA";
+		param.domain = domain;
+		param.T = cmdOption.nTopics;
+		param.nBurnin = 0;
+		param.nIterations = cmdOption.nIterations;
+		param.sampleLag = -1;
+		param.alpha = cmdOption.alpha;
+		param.beta = cmdOption.beta;
+		param.randomSeed = cmdOption.randomSeed;
+		param.randomGeneratorName = cmdOption.randomGeneratorName;
+		param.streamingDecay = cmdOption.decay;
+		param.twords = cmdOption.twords;
+		param.outputModelDirectory = outputDirectory;
+		return param;
+	}
+}
@@ -0,0 +1,40 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event of a Gibbs sampling sweep of LDA or AMC. The must-link and
+ * cannot-link fields are 0 for LDA.
+ */
+@Name("AMC.GibbsSweep")
+@Label("Gibbs Sampling Sweep")
+@Category("AMC")
+@Description("A Gibbs sampling sweep over all tokens of a domain")
+@StackTrace(false)
+public class GibbsSweepEvent extends jdk.jfr.Event {
+	@Label("Model")
+	public String modelName;
+
+	@Label("Domain")
+	public String domain;
+
+	@Label("Iteration")
+	public int iteration;
+
+	@Label("Tokens")
+	public long noofTokens;
+
+	@Label("Must-Links Sampled")
+	public long noofMustLinksSampled;
+
+	@Label("Cannot Word Transfers")
+	public long noofCannotWordTransfers;
+
+	@Label("Cannot-Links")
+	@Description("The number of cannot-links known at the sweep")
+	public int noofCannotLinks;
+}
@@ -0,0 +1,35 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event of a knowledge extraction phase of AMC: the prior topic
+ * extraction, MS-Apriori, building the must-link graph or a cannot-link
+ * extraction round (the phase names of ModelMetrics).
+ */
+@Name("AMC.KnowledgeExtraction")
+@Label("Knowledge Extraction")
+@Category("AMC")
+@Description("A knowledge extraction phase of AMC in a domain")
+@StackTrace(false)
+public class KnowledgeExtractionEvent extends jdk.jfr.Event {
+	@Label("Domain")
+	public String domain;
+
+	@Label("Phase")
+	public String phase;
+
+	@Label("Iteration")
+	@Description("The Gibbs sampling iteration of a cannot-link extraction, -1 otherwise")
+	public int iteration = -1;
+
+	@Label("Must-Links")
+	public int noofMustLinks;
+
+	@Label("Cannot-Links")
+	public int noofCannotLinks;
+}
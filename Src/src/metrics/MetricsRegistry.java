@@ -0,0 +1,121 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import javax.management.ObjectName;
+
+import model.TopicModel;
+import multithread.TopicModelListener;
+import utility.FileReaderAndWriter;
+
+/**
+ * Collect the metrics of the models of all domains once they are printed, and
+ * export them as JSON or CSV, or through JMX.
+ */
+public class MetricsRegistry implements TopicModelListener,
+		MetricsRegistryMBean {
+	public static final String objectName = "AMC:type=Metrics";
+
+	private ArrayList<ModelMetrics> modelMetricsList = new ArrayList<ModelMetrics>();
+
+	public synchronized void addModelMetrics(ModelMetrics modelMetrics) {
+		modelMetricsList.add(modelMetrics);
+	}
+
+	@Override
+	public void modelFinished(TopicModel model) {
+		// Wait for the printing time.
+	}
+
+	@Override
+	public void modelPrinted(TopicModel model) {
+		addModelMetrics(model.metrics);
+	}
+
+	/**
+	 * Register the metrics into the platform MBean server.
+	 */
+	public void registerMBean() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+					new ObjectName(objectName));
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+	}
+
+	@Override
+	public synchronized int getNoofModels() {
+		int noofModels = 0;
+		for (ModelMetrics modelMetrics : modelMetricsList) {
+			if (modelMetrics.getPhaseTime(ModelMetrics.GIBBS_SAMPLING) > 0) {
+				++noofModels;
+			}
+		}
+		return noofModels;
+	}
+
+	@Override
+	public synchronized long getTokensSampled() {
+		return getTotalCount(ModelMetrics.TOKENS_SAMPLED);
+	}
+
+	@Override
+	public synchronized double getTokensPerSecond() {
+		long nanos = 0;
+		for (ModelMetrics modelMetrics : modelMetricsList) {
+			nanos += modelMetrics.getPhaseTime(ModelMetrics.GIBBS_SAMPLING);
+		}
+		return nanos == 0 ? 0 : getTokensSampled() * 1e9 / nanos;
+	}
+
+	@Override
+	public synchronized long getCannotWordTransfers() {
+		return getTotalCount(ModelMetrics.CANNOT_WORD_TRANSFERS);
+	}
+
+	private long getTotalCount(String counter) {
+		long count = 0;
+		for (ModelMetrics modelMetrics : modelMetricsList) {
+			count += modelMetrics.getCount(counter);
+		}
+		return count;
+	}
+
+	@Override
+	public synchronized String getMetricsInJSON() {
+		String lineSeparator = System.getProperty("line.separator");
+		StringBuilder sbJSON = new StringBuilder();
+		sbJSON.append('[').append(lineSeparator);
+		for (int i = 0; i < modelMetricsList.size(); ++i) {
+			sbJSON.append(modelMetricsList.get(i).toJSON());
+			if (i + 1 < modelMetricsList.size()) {
+				sbJSON.append(',');
+			}
+			sbJSON.append(lineSeparator);
+		}
+		sbJSON.append(']').append(lineSeparator);
+		return sbJSON.toString();
+	}
+
+	/**
+	 * Print the metrics into the file in JSON.
+	 */
+	public void printJSON(String filePath) {
+		FileReaderAndWriter.writeFile(filePath, getMetricsInJSON());
+	}
+
+	/**
+	 * Print the metrics into the file in CSV.
+	 */
+	public synchronized void printCSV(String filePath) {
+		StringBuilder sbCSV = new StringBuilder();
+		sbCSV.append(ModelMetrics.getCSVHeader());
+		sbCSV.append(System.getProperty("line.separator"));
+		for (ModelMetrics modelMetrics : modelMetricsList) {
+			sbCSV.append(modelMetrics.toCSV());
+		}
+		FileReaderAndWriter.writeFile(filePath, sbCSV.toString());
+	}
+}
@@ -0,0 +1,32 @@
+package metrics;
+
+/**
+ * The metrics exposed through JMX (e.g., jconsole) while the program runs.
+ */
+public interface MetricsRegistryMBean {
+	/**
+	 * The number of models finished and printed.
+	 */
+	public int getNoofModels();
+
+	/**
+	 * The number of tokens sampled by the finished models.
+	 */
+	public long getTokensSampled();
+
+	/**
+	 * The number of tokens sampled per second of Gibbs sampling by the
+	 * finished models.
+	 */
+	public double getTokensPerSecond();
+
+	/**
+	 * The number of cannot word transfers of the finished models.
+	 */
+	public long getCannotWordTransfers();
+
+	/**
+	 * All metrics in JSON.
+	 */
+	public String getMetricsInJSON();
+}
@@ -0,0 +1,263 @@
+package metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The timings and counts recorded while running a topic model (or loading the
+ * corpus) of a domain.
+ *
+ * The time of a phase is accumulated over all its occurrences, e.g., the
+ * cannot-link extraction runs once per cannot-link learning round. The time of
+ * each Gibbs sampling sweep is also kept to see how the sweeps change over the
+ * run.
+ *
+ * The methods are synchronized since a model is printed by a thread other than
+ * the one running it.
+ */
+public class ModelMetrics {
+	/******************* Phases *********************/
+	public static final String CORPUS_LOADING = "corpusLoading";
+	public static final String PRIOR_TOPIC_EXTRACTION = "priorTopicExtraction";
+	public static final String MS_APRIORI = "msApriori";
+	public static final String MUST_LINK_GRAPH = "mustLinkGraph";
+	public static final String GIBBS_SAMPLING = "gibbsSampling";
+	public static final String CANNOT_LINK_EXTRACTION = "cannotLinkExtraction";
+	public static final String POSTERIOR = "posterior";
+	public static final String PRINTING = "printing";
+
+	/******************* Counters *********************/
+	public static final String TOKENS_SAMPLED = "tokensSampled";
+	public static final String MUST_LINKS = "mustLinks";
+	public static final String MUST_LINKS_SAMPLED = "mustLinksSampled";
+	public static final String CANNOT_LINKS = "cannotLinks";
+	public static final String CANNOT_WORD_TRANSFERS = "cannotWordTransfers";
+	public static final String KNOWLEDGE_STORE_HITS = "knowledgeStoreHits";
+	public static final String ALLOCATED_BYTES = "allocatedBytes";
+	public static final String GC_COUNT = "gcCount";
+	public static final String GC_MILLIS = "gcMillis";
+
+	public String modelName = null;
+	public String domain = null;
+	// The output directory of the model or the input directory of the corpus,
+	// which tells the datasets apart.
+	public String directory = null;
+
+	// Phase -> {total nanoseconds, number of occurrences}.
+	private Map<String, long[]> phaseTimes = new LinkedHashMap<String, long[]>();
+	private Map<String, Long> counters = new LinkedHashMap<String, Long>();
+	private ArrayList<Long> sweepTimes = new ArrayList<Long>();
+
+	public ModelMetrics(String modelName2, String domain2, String directory2) {
+		modelName = modelName2;
+		domain = domain2;
+		directory = directory2;
+	}
+
+	/**
+	 * Add the time of one occurrence of the phase.
+	 */
+	public synchronized void addPhaseTime(String phase, long nanos) {
+		long[] time = phaseTimes.get(phase);
+		if (time == null) {
+			time = new long[2];
+			phaseTimes.put(phase, time);
+		}
+		time[0] += nanos;
+		++time[1];
+	}
+
+	/**
+	 * Add the time of a Gibbs sampling sweep over the given number of tokens.
+	 */
+	public synchronized void addSweepTime(long nanos, long noofTokens) {
+		addPhaseTime(GIBBS_SAMPLING, nanos);
+		sweepTimes.add(nanos);
+		addCount(TOKENS_SAMPLED, noofTokens);
+	}
+
+	public synchronized void addCount(String counter, long count) {
+		Long value = counters.get(counter);
+		counters.put(counter, value == null ? count : value + count);
+	}
+
+	public synchronized long getCount(String counter) {
+		Long value = counters.get(counter);
+		return value == null ? 0 : value;
+	}
+
+	/**
+	 * Return the total nanoseconds of the phase.
+	 */
+	public synchronized long getPhaseTime(String phase) {
+		long[] time = phaseTimes.get(phase);
+		return time == null ? 0 : time[0];
+	}
+
+	/**
+	 * The number of tokens sampled per second of Gibbs sampling.
+	 */
+	public synchronized double getTokensPerSecond() {
+		long nanos = getPhaseTime(GIBBS_SAMPLING);
+		return nanos == 0 ? 0 : getCount(TOKENS_SAMPLED) * 1e9 / nanos;
+	}
+
+	/**
+	 * Get the current resource usage: {the bytes allocated by the current
+	 * thread, the number of garbage collections, the milliseconds of garbage
+	 * collections}. Note that the garbage collections are counted for the
+	 * whole JVM, including the other domains running in parallel.
+	 */
+	public static long[] getResourceUsage() {
+		return new long[] { getAllocatedBytesOfCurrentThread(), getGCCount(),
+				getGCMillis() };
+	}
+
+	/**
+	 * Add the resource usage since startResourceUsage (from
+	 * getResourceUsage() in the same thread) into the counters.
+	 */
+	public synchronized void addResourceUsageSince(long[] startResourceUsage) {
+		long[] resourceUsage = getResourceUsage();
+		if (startResourceUsage[0] >= 0 && resourceUsage[0] >= 0) {
+			addCount(ALLOCATED_BYTES, resourceUsage[0] - startResourceUsage[0]);
+		}
+		addCount(GC_COUNT, resourceUsage[1] - startResourceUsage[1]);
+		addCount(GC_MILLIS, resourceUsage[2] - startResourceUsage[2]);
+	}
+
+	/**
+	 * Return -1 if the JVM does not support it.
+	 */
+	private static long getAllocatedBytesOfCurrentThread() {
+		java.lang.management.ThreadMXBean threadMXBean = ManagementFactory
+				.getThreadMXBean();
+		if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threadMXBean)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private static long getGCCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory
+				.getGarbageCollectorMXBeans()) {
+			count += Math.max(gc.getCollectionCount(), 0);
+		}
+		return count;
+	}
+
+	private static long getGCMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory
+				.getGarbageCollectorMXBeans()) {
+			millis += Math.max(gc.getCollectionTime(), 0);
+		}
+		return millis;
+	}
+
+	// ------------------------------------------------------------------------
+	// Export
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Get the metrics as a JSON object.
+	 */
+	public synchronized String toJSON() {
+		StringBuilder sbJSON = new StringBuilder();
+		sbJSON.append("{\"model\": ").append(quote(modelName));
+		sbJSON.append(", \"domain\": ").append(quote(domain));
+		sbJSON.append(", \"directory\": ").append(quote(directory));
+
+		sbJSON.append(", \"phases\": {");
+		String separator = "";
+		for (Map.Entry<String, long[]> entry : phaseTimes.entrySet()) {
+			sbJSON.append(separator).append(quote(entry.getKey()));
+			sbJSON.append(": {\"count\": ").append(entry.getValue()[1]);
+			sbJSON.append(", \"millis\": ")
+					.append(toMillis(entry.getValue()[0])).append('}');
+			separator = ", ";
+		}
+		sbJSON.append('}');
+
+		sbJSON.append(", \"counters\": {");
+		separator = "";
+		for (Map.Entry<String, Long> entry : counters.entrySet()) {
+			sbJSON.append(separator).append(quote(entry.getKey()));
+			sbJSON.append(": ").append(entry.getValue());
+			separator = ", ";
+		}
+		sbJSON.append('}');
+
+		if (!sweepTimes.isEmpty()) {
+			sbJSON.append(", \"tokensPerSecond\": ").append(
+					String.format(Locale.ROOT, "%.1f", getTokensPerSecond()));
+
+			sbJSON.append(", \"sweepMillis\": [");
+			separator = "";
+			for (long nanos : sweepTimes) {
+				sbJSON.append(separator).append(toMillis(nanos));
+				separator = ", ";
+			}
+			sbJSON.append(']');
+		}
+		sbJSON.append('}');
+		return sbJSON.toString();
+	}
+
+	/**
+	 * Get the metrics as CSV rows (model, domain, directory, metric, value).
+	 * The time of a phase is in milliseconds.
+	 */
+	public synchronized String toCSV() {
+		String prefix = quoteCSV(modelName) + "," + quoteCSV(domain) + ","
+				+ quoteCSV(directory) + ",";
+		String lineSeparator = System.getProperty("line.separator");
+		StringBuilder sbCSV = new StringBuilder();
+		for (Map.Entry<String, long[]> entry : phaseTimes.entrySet()) {
+			sbCSV.append(prefix).append(entry.getKey()).append(".count,")
+					.append(entry.getValue()[1]).append(lineSeparator);
+			sbCSV.append(prefix).append(entry.getKey()).append(".millis,")
+					.append(toMillis(entry.getValue()[0]))
+					.append(lineSeparator);
+		}
+		for (Map.Entry<String, Long> entry : counters.entrySet()) {
+			sbCSV.append(prefix).append(entry.getKey()).append(',')
+					.append(entry.getValue()).append(lineSeparator);
+		}
+		if (!sweepTimes.isEmpty()) {
+			sbCSV.append(prefix).append("tokensPerSecond,");
+			sbCSV.append(String.format(Locale.ROOT, "%.1f",
+					getTokensPerSecond()));
+			sbCSV.append(lineSeparator);
+		}
+		return sbCSV.toString();
+	}
+
+	public static String getCSVHeader() {
+		return "model,domain,directory,metric,value";
+	}
+
+	private static String toMillis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+
+	private static String quote(String str) {
+		if (str == null) {
+			return "null";
+		}
+		return "\"" + str.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	private static String quoteCSV(String str) {
+		if (str == null) {
+			return "";
+		}
+		return "\"" + str.replace("\"", "\"\"") + "\"";
+	}
+}
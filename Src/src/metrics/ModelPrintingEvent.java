@@ -0,0 +1,26 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event of printing a topic model into the disk.
+ */
+@Name("AMC.ModelPrinting")
+@Label("Model Printing")
+@Category("AMC")
+@Description("Printing the topic model of a domain into the disk")
+@StackTrace(false)
+public class ModelPrintingEvent extends jdk.jfr.Event {
+	@Label("Model")
+	public String modelName;
+
+	@Label("Domain")
+	public String domain;
+
+	@Label("Output Directory")
+	public String directory;
+}
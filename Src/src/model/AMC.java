@@ -1,26 +1,38 @@
 package model;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
 
 import knowledge.CannotLink;
 import knowledge.CannotLinks;
 import knowledge.KnowledgeExtractingAndProcessingForAMC;
+import knowledge.KnowledgeStore;
 import knowledge.MustLink;
 import knowledge.MustLinks;
 import knowledge.TopicOverlappingOfMustLinks;
+import metrics.GibbsSweepEvent;
+import metrics.KnowledgeExtractionEvent;
+import metrics.ModelMetrics;
 import nlp.Corpus;
+import nlp.Topic;
 import nlp.Topics;
 import nlp.WordTopicAssignment;
 import nlp.WordTopicAssignments;
 import utility.ArrayAllocationAndInitialization;
+import utility.CountMatrix;
 import utility.ExceptionUtility;
 import utility.FileReaderAndWriter;
 import utility.InverseTransformSampler;
+import utility.ParallelRanges;
+import utility.RandomNumberGenerators;
+import utility.TopicProbabilityKernel;
 
 /**
  * This implements the AMC (topic modeling with Automatically generated
@@ -40,26 +52,36 @@ public class AMC extends TopicModel {
 
 	/******************* Posterior distributions *********************/
 	private double[][] theta = null; // Document-topic distribution, size D * T.
-	private double[][] thetasum = null; // Cumulative document-topic
-										// distribution, size
-										// D * T.
+	private PosteriorSums thetasum = null; // Cumulative document-topic
+											// distribution, size
+											// D * T.
 	private double[][] phi = null; // Topic-word distribution, size T * V.
-	private double[][] phisum = null; // Cumulative topic-word distribution,
-										// size T * V.
+	private PosteriorSums phisum = null; // Cumulative topic-word
+											// distribution, size T * V.
 	// Number of times to add the sum arrays, such as thetasum and phisum.
 	public int numstats = 0;
 
 	/******************* Temp variables while sampling *********************/
 	// z is defined in the superclass TopicModel.
 	// private int[][] z = null; // Topic assignments for each word.
-	// ndt[d][t]: the counts of document d having topic t.
-	private double[][] ndt = null;
+	// ndt[d][t]: the counts of document d having topic t. Only the topic-word
+	// counts get the (real-valued) GPU promotions, so these are integers.
+	private int[][] ndt = null;
 	// ndsum[d]: the counts of document d having any topic.
-	private double[] ndsum = null;
-	// ntw[t][w]: the counts of word w appearing under topic t.
-	private double[][] ntw = null;
-	// ntsum[t]: the counts of any word appearing under topic t.
+	private int[] ndsum = null;
+	// nwt[w][t]: the counts of word w appearing under topic t, stored as
+	// floats if param.useFloatTopicWordCounts is set.
+	private TopicWordCounts nwt = null;
+	// ntsum[t]: the counts of any word appearing under topic t. They are
+	// always doubles, since every promotion of the topic is added to them and
+	// the rounding errors of floats would accumulate.
 	private double[] ntsum = null;
+	// The counts stored as floats are recomputed from the topic assignments
+	// every this many sweeps (see recomputeTopicWordCounts()).
+	private static final int FLOAT_COUNTS_RECOMPUTATION_INTERVAL = 10;
+	// The model fails if the counts of a topic drifted from the recomputed
+	// ones by more than this ratio of its total count.
+	private static final double MAXIMUM_FLOAT_COUNTS_DRIFT = 1e-5;
 
 	// wtaOfWordUnderTopic[t][w]: the actual positions (document index and word
 	// index)
@@ -72,15 +94,35 @@ public class AMC extends TopicModel {
 	// Must-Links.
 	private MustLinks mustLinks = null;
 	private Map<MustLink, Integer> mpMustLinkToMustLinkId = null;
-	private Map<Integer, MustLink> mpMustLinkIdToMustLink = null;
-	private Map<Integer, Double> mpMustLinkIdToGPUValue = null;
+	private double[] mustLinkGPUValues = null;
 	// The constructed must-link graph.
 	private ArrayList<ArrayList<Integer>> mustLinkGraph = null;
-	// Record the sampled must-link list for each word in each document:
-	// sampledMustLinkListForEachWord.get(d).get(n);
-	private ArrayList<ArrayList<ArrayList<MustLink>>> sampledMustLinkListForEachWord = null;
+	// The GPU promotions cached from the must-link graph, indexed by the word
+	// id w and the position i of a must-link in the must-link list of w.
+	// mustLinkOtherWordidOfWord[w][i]: the other word of the must-link.
+	private int[][] mustLinkOtherWordidOfWord = null;
+	// promotedWordidsOfWord[w][i][k] and promotedValuesOfWord[w][i][k]: the
+	// words promoted (and by how much) when the must-link is sampled.
+	private int[][][] promotedWordidsOfWord = null;
+	private double[][][] promotedValuesOfWord = null;
+	// Record the index of the sampled must-link (in the must-link list of the
+	// word, -1 if none) for each word in each document:
+	// sampledMustLinkIndexForEachWord[d][n].
+	private int[][] sampledMustLinkIndexForEachWord = null;
+	// The largest number of must-links that a word has.
+	private int maxNoofMustLinksOfWord = 0;
 	// Cannot-Links.
 	private CannotLinks cannotLinks = null;
+	// The stamp of the prior topics in the knowledge store (if any).
+	private long knowledgeStamp = 0;
+
+	/******************* Samplers *********************/
+	// The state of the sequential sampler which updates the counts of the
+	// model directly.
+	private AMCSamplerState sequentialState = null;
+	// Whether wtaOfWordUnderTopic reflects the current z[][]. It is not
+	// maintained while the document partitions are sampled in parallel.
+	private boolean wtaOfWordUnderTopicUpToDate = true;
 
 	/**
 	 * Create a new topic model with all variables initialized. The z[][] is
@@ -98,35 +140,62 @@ public class AMC extends TopicModel {
 		allocateMemoryForTempVariables();
 
 		// Get the prior topic (p-topic) set.
+		KnowledgeExtractionEvent event = new KnowledgeExtractionEvent();
+		event.begin();
+		long startTime = System.nanoTime();
 		priorTopicsForKnowledgeExtraction = new Topics();
-		for (TopicModel tm : param.topicModelList_LDA_KnowledgeFrom) {
-			if (!tm.corpus.domain.equals(param.domain)) {
+		for (TopicModelSummary summary : param.topicModelList_LDA_KnowledgeFrom) {
+			if (!summary.domain.equals(param.domain)) {
 				// Knowledge is extracted from the domain other than the
 				// current domain.
 				// Knowledge is extracted from the top topical words under
 				// topics, i.e., only top topical words are remained in the
-				// priorTopicsForKnowledgeExtraction.
-				Topics topicsOfDomain = tm
-						.getTopics(param.numberOfTopWordsUnderPriorTopicsForKnowledgeExtraction);
-				priorTopicsForKnowledgeExtraction.addTopics(topicsOfDomain);
+				// priorTopicsForKnowledgeExtraction (see TopicModelSummary).
+				priorTopicsForKnowledgeExtraction.addTopics(summary.topics);
 			}
 		}
-
-		if (param.useMustLinkInAMC) {
-			// Extract must-links and build must-link graph.
-			KnowledgeExtractingAndProcessingForAMC kepAMC = new KnowledgeExtractingAndProcessingForAMC();
-			mustLinks = kepAMC.extractMustLinks(
-					priorTopicsForKnowledgeExtraction, corpus,
+		// The knowledge is mined with the word ids shared by all domains if
+		// the summaries have them. The topics are shared by the models of all
+		// domains, so they are not modified here.
+		if (param.knowledgeStore != null) {
+			knowledgeStamp = KnowledgeStore.getStamp(
+					priorTopicsForKnowledgeExtraction,
 					param.uniformMinimumSupport,
 					param.multipleMiniSupportPercentage,
 					param.supportDifferenceConstraint);
+		}
+		metrics.addPhaseTime(ModelMetrics.PRIOR_TOPIC_EXTRACTION,
+				System.nanoTime() - startTime);
+		commitKnowledgeExtractionEvent(event,
+				ModelMetrics.PRIOR_TOPIC_EXTRACTION, -1);
 
+		if (param.useMustLinkInAMC) {
+			// Extract must-links and build must-link graph.
+			event = new KnowledgeExtractionEvent();
+			event.begin();
+			startTime = System.nanoTime();
+			mustLinks = extractMustLinks();
+			metrics.addPhaseTime(ModelMetrics.MS_APRIORI, System.nanoTime()
+					- startTime);
+			metrics.addCount(ModelMetrics.MUST_LINKS, mustLinks.size());
+			commitKnowledgeExtractionEvent(event, ModelMetrics.MS_APRIORI, -1);
+
+			event = new KnowledgeExtractionEvent();
+			event.begin();
+			startTime = System.nanoTime();
 			buildMustLinkGraph();
+			metrics.addPhaseTime(ModelMetrics.MUST_LINK_GRAPH,
+					System.nanoTime() - startTime);
+			commitKnowledgeExtractionEvent(event,
+					ModelMetrics.MUST_LINK_GRAPH, -1);
 		}
+		sequentialState = new AMCSamplerState(nwt, ntsum,
+				createTopicProbabilityKernel(), randomGenerator,
+				maxNoofMustLinksOfWord);
 
 		// Initialize the first status of Markov chain using topic
 		// assignments from the last iteration topic model result.
-		TopicModel topicmodel_currentDomain = findCurrentDomainTopicModel(param.topicModelList_LDA_SameSetting);
+		TopicModelSummary topicmodel_currentDomain = findCurrentDomainTopicModel(param.topicModelList_LDA_SameSetting);
 		initializeFirstMarkovChainUsingExistingZ(topicmodel_currentDomain.z);
 	}
 
@@ -168,10 +237,10 @@ public class AMC extends TopicModel {
 		phi = ArrayAllocationAndInitialization.allocateAndInitialize(phi,
 				param.T, param.V);
 		if (param.sampleLag > 0) {
-			thetasum = ArrayAllocationAndInitialization.allocateAndInitialize(
-					thetasum, param.D, param.T);
-			phisum = ArrayAllocationAndInitialization.allocateAndInitialize(
-					phisum, param.T, param.V);
+			thetasum = new PosteriorSums(param.D, param.T,
+					param.useFloatPosteriorSums);
+			phisum = new PosteriorSums(param.T, param.V,
+					param.useFloatPosteriorSums);
 			numstats = 0;
 		}
 
@@ -180,8 +249,8 @@ public class AMC extends TopicModel {
 				param.D, param.T);
 		ndsum = ArrayAllocationAndInitialization.allocateAndInitialize(ndsum,
 				param.D);
-		ntw = ArrayAllocationAndInitialization.allocateAndInitialize(ntw,
-				param.T, param.V);
+		nwt = new TopicWordCounts(param.V, param.T,
+				param.useFloatTopicWordCounts);
 		ntsum = ArrayAllocationAndInitialization.allocateAndInitialize(ntsum,
 				param.T);
 
@@ -194,14 +263,10 @@ public class AMC extends TopicModel {
 
 		/******************* Knowledge *********************/
 		if (docs != null) {
-			sampledMustLinkListForEachWord = new ArrayList<ArrayList<ArrayList<MustLink>>>();
+			sampledMustLinkIndexForEachWord = new int[param.D][];
 			for (int d = 0; d < param.D; ++d) {
-				sampledMustLinkListForEachWord
-						.add(new ArrayList<ArrayList<MustLink>>());
-				for (int n = 0; n < docs[d].length; ++n) {
-					sampledMustLinkListForEachWord.get(d).add(
-							new ArrayList<MustLink>());
-				}
+				sampledMustLinkIndexForEachWord[d] = new int[docs[d].length];
+				Arrays.fill(sampledMustLinkIndexForEachWord[d], -1);
 			}
 		}
 	}
@@ -221,7 +286,7 @@ public class AMC extends TopicModel {
 				int topic = z2[d][n];
 				z[d][n] = topic;
 
-				updateCount(d, n, topic, word, +1);
+				updateCount(sequentialState, d, n, topic, word, +1);
 			}
 		}
 	}
@@ -238,7 +303,46 @@ public class AMC extends TopicModel {
 		// 1. Run a certain number of Gibbs Sampling sweeps.
 		runGibbsSampling();
 		// 2. Compute the posterior distributions.
+		long startTime = System.nanoTime();
 		computePosteriorDistribution();
+		metrics.addPhaseTime(ModelMetrics.POSTERIOR, System.nanoTime()
+				- startTime);
+	}
+
+	// ------------------------------------------------------------------------
+	// Knowledge
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Extract the must-links from the prior topics. If a knowledge store is
+	 * given, the must-links mined from the same prior topics are taken from
+	 * the store instead of running MS-Apriori, and the newly mined ones are
+	 * put into it.
+	 */
+	private MustLinks extractMustLinks() {
+		KnowledgeExtractingAndProcessingForAMC kepAMC = new KnowledgeExtractingAndProcessingForAMC();
+		if (param.knowledgeStore == null) {
+			return kepAMC.extractMustLinks(priorTopicsForKnowledgeExtraction,
+					corpus, param.uniformMinimumSupport,
+					param.multipleMiniSupportPercentage,
+					param.supportDifferenceConstraint);
+		}
+		MustLinks minedMustLinks = param.knowledgeStore.getMustLinks(
+				param.domain, knowledgeStamp);
+		if (minedMustLinks != null) {
+			metrics.addCount(ModelMetrics.KNOWLEDGE_STORE_HITS, 1);
+		} else {
+			minedMustLinks = kepAMC.mineMustLinks(
+					priorTopicsForKnowledgeExtraction,
+					param.uniformMinimumSupport,
+					param.multipleMiniSupportPercentage,
+					param.supportDifferenceConstraint);
+			param.knowledgeStore.putMustLinks(param.domain, knowledgeStamp,
+					KnowledgeStore
+							.getDomains(priorTopicsForKnowledgeExtraction),
+					minedMustLinks);
+		}
+		return kepAMC.filterMustLinks(minedMustLinks, corpus);
 	}
 
 	// ------------------------------------------------------------------------
@@ -253,77 +357,376 @@ public class AMC extends TopicModel {
 		// both must-links and cannot-links.
 		int totalIterations = param.nIterations
 				* (1 + param.cannotLinkLearningIterations);
-		for (int i = 0; i < totalIterations; ++i) {
-			for (int d = 0; d < param.D; ++d) {
-				int N = docs[d].length;
-				for (int n = 0; n < N; ++n) {
-					if (i < param.nBurnin) {
-						// Burn in period.
-						sampleTopicAssignment(d, n, false, null);
-					} else {
-						sampleTopicAssignment(d, n, true, null);
+		// The documents are partitioned among several samplers running in
+		// parallel if more than one sampler thread is specified.
+		int P = Math.min(param.numberOfSamplerThreads, param.D);
+		ArrayList<AMCSamplerState> partitionStates = null;
+		ForkJoinPool samplerPool = null;
+		if (P > 1) {
+			partitionStates = createPartitionSamplerStates(P);
+			if (!ForkJoinTask.inForkJoinPool()) {
+				// Inside a work-stealing pool (e.g., the domain thread pool),
+				// the partitions are forked into that pool where idle threads
+				// can steal them. Otherwise, they have threads of their own.
+				samplerPool = new ForkJoinPool(P);
+			}
+		}
+		long noofTokens = getNoofTokens();
+		try {
+			for (int i = 0; i < totalIterations; ++i) {
+				// No cannot words are transferred in the burn in period.
+				boolean resampleCannotWords = i >= param.nBurnin;
+				GibbsSweepEvent sweepEvent = new GibbsSweepEvent();
+				sweepEvent.begin();
+				long noofMustLinksSampledBefore = getNoofMustLinksSampled(partitionStates);
+				long noofCannotWordTransfersBefore = sequentialState.noofCannotWordTransfers;
+				long startTime = System.nanoTime();
+				if (P > 1) {
+					runGibbsSamplingSweepInParallel(samplerPool, partitionStates,
+							resampleCannotWords);
+				} else {
+					for (int d = 0; d < param.D; ++d) {
+						int N = docs[d].length;
+						for (int n = 0; n < N; ++n) {
+							sampleTopicAssignment(sequentialState, d, n,
+									resampleCannotWords, null);
+						}
 					}
 				}
+				if (param.useFloatTopicWordCounts
+						&& ((i + 1) % FLOAT_COUNTS_RECOMPUTATION_INTERVAL == 0
+						|| i == totalIterations - 1)) {
+					recomputeTopicWordCounts();
+				}
+				metrics.addSweepTime(System.nanoTime() - startTime, noofTokens);
+				if (sweepEvent.shouldCommit()) {
+					sweepEvent.modelName = param.modelName;
+					sweepEvent.domain = param.domain;
+					sweepEvent.iteration = i;
+					sweepEvent.noofTokens = noofTokens;
+					sweepEvent.noofMustLinksSampled = getNoofMustLinksSampled(partitionStates)
+							- noofMustLinksSampledBefore;
+					sweepEvent.noofCannotWordTransfers = sequentialState.noofCannotWordTransfers
+							- noofCannotWordTransfersBefore;
+					sweepEvent.noofCannotLinks = cannotLinks == null ? 0
+							: cannotLinks.size();
+					sweepEvent.commit();
+				}
+
+				if (param.useCannotLinkInAMC
+						&& (i > 0 && i % param.nIterations == 0)) {
+					// Extract new cannot-links and add them into the current list
+					// of cannot-links.
+					if (i >= param.nBurnin) {
+						// After burn in.
+						// Compute the values of distributions given current Markov
+						// status.
+						KnowledgeExtractionEvent event = new KnowledgeExtractionEvent();
+						event.begin();
+						startTime = System.nanoTime();
+						computeTopicWordDistribution(-1);
+						int[][] topWordIDList = getTopWordsUnderEachTopicGivenCurrentMarkovStatus();
+						KnowledgeExtractingAndProcessingForAMC kepAMC = new KnowledgeExtractingAndProcessingForAMC();
+						CannotLinks extractedCannotLinks = kepAMC
+								.extractCannotLinks(topWordIDList,
+										priorTopicsForKnowledgeExtraction, corpus,
+										param.supportRatioForCannotLink,
+										param.supportThresholdForCannotLink);
+
+						if (cannotLinks == null) {
+							cannotLinks = new CannotLinks();
+						}
+						// Add extracted cannot-links into the all cannot-links.
+						for (CannotLink cannotLink : extractedCannotLinks.cannotlinkList) {
+							cannotLinks.addCannotLink(cannotLink);
+						}
+						metrics.addPhaseTime(ModelMetrics.CANNOT_LINK_EXTRACTION,
+								System.nanoTime() - startTime);
+						commitKnowledgeExtractionEvent(event,
+								ModelMetrics.CANNOT_LINK_EXTRACTION, i);
+					}
+				}
+
+				if (i >= param.nBurnin && param.sampleLag > 0
+						&& i % param.sampleLag == 0) {
+					updatePosteriorDistribution();
+				}
+			}
+		} finally {
+			if (samplerPool != null) {
+				samplerPool.shutdown();
 			}
+		}
+
+		metrics.addCount(ModelMetrics.MUST_LINKS_SAMPLED,
+				getNoofMustLinksSampled(partitionStates));
+		metrics.addCount(ModelMetrics.CANNOT_LINKS,
+				cannotLinks == null ? 0 : cannotLinks.size());
+		metrics.addCount(ModelMetrics.CANNOT_WORD_TRANSFERS,
+				sequentialState.noofCannotWordTransfers);
+	}
+
+	/**
+	 * Get the number of must-links sampled by the sequential sampler and the
+	 * samplers of the partitions (null if sampled sequentially).
+	 */
+	private long getNoofMustLinksSampled(
+			ArrayList<AMCSamplerState> partitionStates) {
+		long noofMustLinksSampled = sequentialState.noofMustLinksSampled;
+		if (partitionStates != null) {
+			for (AMCSamplerState state : partitionStates) {
+				noofMustLinksSampled += state.noofMustLinksSampled;
+			}
+		}
+		return noofMustLinksSampled;
+	}
 
-			if (param.useCannotLinkInAMC
-					&& (i > 0 && i % param.nIterations == 0)) {
-				// Extract new cannot-links and add them into the current list
-				// of cannot-links.
-				if (i >= param.nBurnin) {
-					// After burn in.
-					// Compute the values of distributions given current Markov
-					// status.
-					computeTopicWordDistribution(-1);
-					ArrayList<PriorityQueue<Integer>> topWordIDList = getTopWordsUnderEachTopicGivenCurrentMarkovStatus();
-					KnowledgeExtractingAndProcessingForAMC kepAMC = new KnowledgeExtractingAndProcessingForAMC();
-					CannotLinks extractedCannotLinks = kepAMC
-							.extractCannotLinks(topWordIDList,
-									priorTopicsForKnowledgeExtraction, corpus,
-									param.supportRatioForCannotLink,
-									param.supportThresholdForCannotLink);
-
-					if (cannotLinks == null) {
-						cannotLinks = new CannotLinks();
+	/**
+	 * Commit the JFR event of the knowledge extraction phase if it is
+	 * recorded.
+	 */
+	private void commitKnowledgeExtractionEvent(
+			KnowledgeExtractionEvent event, String phase, int iteration) {
+		if (event.shouldCommit()) {
+			event.domain = param.domain;
+			event.phase = phase;
+			event.iteration = iteration;
+			event.noofMustLinks = mustLinks == null ? 0 : mustLinks.size();
+			event.noofCannotLinks = cannotLinks == null ? 0 : cannotLinks
+					.size();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Create the sampler states of P document partitions. Each partition
+	 * contains a contiguous range of documents and has its own random number
+	 * generator split from the random number generator of the model, in the
+	 * order of partitions.
+	 */
+	private ArrayList<AMCSamplerState> createPartitionSamplerStates(int P) {
+		ArrayList<AMCSamplerState> partitionStates = new ArrayList<AMCSamplerState>();
+		for (int p = 0; p < P; ++p) {
+			int firstDocument = (int) ((long) param.D * p / P);
+			int endDocument = (int) ((long) param.D * (p + 1) / P);
+			partitionStates.add(new AMCSamplerState(nwt, param.T, param.V,
+					createTopicProbabilityKernel(), RandomNumberGenerators
+							.split(randomGenerator, param.randomGeneratorName),
+					maxNoofMustLinksOfWord, firstDocument, endDocument));
+		}
+		return partitionStates;
+	}
+
+	/**
+	 * Create the kernel computing the topic probabilities of a token for a
+	 * sampler state.
+	 */
+	private TopicProbabilityKernel createTopicProbabilityKernel() {
+		return new TopicProbabilityKernel(param.T, param.alpha, param.beta,
+				vBeta, param.useVectorizedKernel);
+	}
+
+	/**
+	 * Run one Gibbs Sampling sweep where the document partitions are sampled
+	 * in parallel. Each partition reads the topic-word counts of the model
+	 * (which do not change during the sweep) plus its own changes of them and
+	 * defers the cannot word transfers. After all partitions finish, the
+	 * changes are added into the model and the deferred transfers are applied
+	 * in the order of partitions, so that the result does not depend on
+	 * thread scheduling.
+	 */
+	private void runGibbsSamplingSweepInParallel(ForkJoinPool samplerPool,
+			ArrayList<AMCSamplerState> partitionStates,
+			final boolean resampleCannotWords) {
+		ArrayList<RecursiveAction> taskList = new ArrayList<RecursiveAction>();
+		for (final AMCSamplerState state : partitionStates) {
+			state.startSweep(ntsum);
+			taskList.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					for (int d = state.firstDocument; d < state.endDocument; ++d) {
+						int N = docs[d].length;
+						for (int n = 0; n < N; ++n) {
+							sampleTopicAssignment(state, d, n,
+									resampleCannotWords, null);
+						}
 					}
-					// Add extracted cannot-links into the all cannot-links.
-					for (CannotLink cannotLink : extractedCannotLinks.cannotlinkList) {
-						cannotLinks.addCannotLink(cannotLink);
+				}
+			});
+		}
+		try {
+			if (samplerPool == null) {
+				ForkJoinTask.invokeAll(taskList);
+			} else {
+				for (RecursiveAction task : taskList) {
+					samplerPool.execute(task);
+				}
+			}
+		} finally {
+			// Wait for all partitions even if one of them fails, so that no
+			// partition still updates its counts after the sweep.
+			for (RecursiveAction task : taskList) {
+				task.quietlyJoin();
+			}
+		}
+		for (RecursiveAction task : taskList) {
+			if (task.isCompletedAbnormally()) {
+				// The counts are inconsistent, so the model fails.
+				throw new RuntimeException(
+						"Failed to sample a document partition.",
+						task.getException());
+			}
+		}
+		wtaOfWordUnderTopicUpToDate = false;
+
+		mergeTopicWordCounts(partitionStates);
+		applyDeferredCannotWordTransfers(partitionStates);
+	}
+
+	/**
+	 * Add the changes of the topic-word counts made by each partition into
+	 * the counts of the model, in the order of partitions.
+	 */
+	private void mergeTopicWordCounts(ArrayList<AMCSamplerState> partitionStates) {
+		for (int t = 0; t < param.T; ++t) {
+			double oldCount = ntsum[t];
+			double newCount = oldCount;
+			for (AMCSamplerState state : partitionStates) {
+				newCount += state.ntsum[t] - oldCount;
+			}
+			ntsum[t] = newCount;
+		}
+		sequentialState.kernel.setTopicCounts(ntsum);
+		for (AMCSamplerState state : partitionStates) {
+			state.addTopicWordCountChangesTo(nwt);
+		}
+	}
+
+	/**
+	 * Recompute the topic-word counts (stored as floats) from the topic
+	 * assignments and the GPU promotions of the sampled must-links. Adding and
+	 * removing the promotions rounds the floats every time, and these errors
+	 * would accumulate over the sweeps, while the recomputation only adds
+	 * (positive) values. The counts of each topic before the recomputation
+	 * must sum up to the recomputed total of the topic within
+	 * MAXIMUM_FLOAT_COUNTS_DRIFT, otherwise the model fails.
+	 */
+	private void recomputeTopicWordCounts() {
+		double[] oldColumnSums = new double[param.T];
+		for (int w = 0; w < param.V; ++w) {
+			for (int t = 0; t < param.T; ++t) {
+				oldColumnSums[t] += nwt.get(w, t);
+			}
+		}
+
+		nwt.clear();
+		Arrays.fill(ntsum, 0);
+		for (int d = 0; d < param.D; ++d) {
+			int N = docs[d].length;
+			for (int n = 0; n < N; ++n) {
+				int word = docs[d][n];
+				int topic = z[d][n];
+				int index = sampledMustLinkIndexForEachWord[d][n];
+				if (index >= 0) {
+					int[] promotedWordids = promotedWordidsOfWord[word][index];
+					double[] promotedValues = promotedValuesOfWord[word][index];
+					for (int k = 0; k < promotedWordids.length; ++k) {
+						nwt.add(promotedWordids[k], topic, promotedValues[k]);
+						ntsum[topic] += promotedValues[k];
 					}
 				}
+				nwt.add(word, topic, 1);
+				ntsum[topic] += 1;
+			}
+		}
+		sequentialState.kernel.setTopicCounts(ntsum);
+
+		for (int t = 0; t < param.T; ++t) {
+			double drift = Math.abs(oldColumnSums[t] - ntsum[t]);
+			if (drift > MAXIMUM_FLOAT_COUNTS_DRIFT * ntsum[t]) {
+				throw new RuntimeException("The topic-word counts of topic "
+						+ t + " drifted by " + drift / ntsum[t]
+						+ " of its total count.");
 			}
+		}
+	}
 
-			if (i >= param.nBurnin && param.sampleLag > 0
-					&& i % param.sampleLag == 0) {
-				updatePosteriorDistribution();
+	/**
+	 * Apply the cannot word transfers deferred by the partitions using the
+	 * sequential sampler, in the order they were discovered.
+	 */
+	private void applyDeferredCannotWordTransfers(
+			ArrayList<AMCSamplerState> partitionStates) {
+		for (AMCSamplerState state : partitionStates) {
+			if (state.deferredCannotWordTransfers.size() > 0
+					&& !wtaOfWordUnderTopicUpToDate) {
+				rebuildWordTopicAssignments();
+			}
+			for (int[] transfer : state.deferredCannotWordTransfers) {
+				transferOneCannotWord(transfer[0], transfer[1]);
+			}
+			state.deferredCannotWordTransfers.clear();
+		}
+	}
+
+	/**
+	 * Rebuild wtaOfWordUnderTopic from the current z[][].
+	 */
+	private void rebuildWordTopicAssignments() {
+		for (int t = 0; t < param.T; ++t) {
+			for (int w = 0; w < param.V; ++w) {
+				wtaOfWordUnderTopic[t][w].clear();
 			}
 		}
+		for (int d = 0; d < param.D; ++d) {
+			int N = docs[d].length;
+			for (int n = 0; n < N; ++n) {
+				int word = docs[d][n];
+				int topic = z[d][n];
+				wtaOfWordUnderTopic[topic][word]
+						.addWordTopicAssignment(new WordTopicAssignment(word,
+								d, n, topic));
+			}
+		}
+		wtaOfWordUnderTopicUpToDate = true;
 	}
 
 	/**
 	 * Sample a topic assigned to the word in position n of document d.
 	 */
-	private void sampleTopicAssignment(int d, int n,
+	private void sampleTopicAssignment(AMCSamplerState state, int d, int n,
 			boolean resampleCannotWords, HashSet<Integer> hsValidSampledTopics) {
 		int old_topic = z[d][n];
 		int word = docs[d][n];
-		updateCount(d, n, old_topic, word, -1);
-
-		double[] p = new double[param.T];
-		for (int t = 0; t < param.T; ++t) {
-			if (hsValidSampledTopics == null
-					|| hsValidSampledTopics.contains(t)) {
-				p[t] = (ndt[d][t] + param.alpha) / (ndsum[d] + tAlpha)
-						* (ntw[t][word] + param.beta) / (ntsum[t] + vBeta);
+		updateCount(state, d, n, old_topic, word, -1);
+
+		double[] ntsum = state.ntsum;
+		double[] p = state.p_of_topic;
+		int topic = -1;
+		if (hsValidSampledTopics == null) {
+			state.kernel.computeCumulativeProbabilities(p, ndt[d], ndsum[d]
+					+ tAlpha, state, word);
+			topic = InverseTransformSampler.sampleFromCumulative(p, param.T,
+					state.randomGenerator.nextDouble());
+		} else {
+			for (int t = 0; t < param.T; ++t) {
+				p[t] = 0;
+				if (hsValidSampledTopics.contains(t)) {
+					p[t] = (ndt[d][t] + param.alpha) / (ndsum[d] + tAlpha)
+							* (state.getTopicWordCount(word, t) + param.beta)
+							/ (ntsum[t] + vBeta);
+				}
 			}
+			topic = InverseTransformSampler.sample(p,
+					state.randomGenerator.nextDouble());
 		}
-		int topic = InverseTransformSampler.sample(p,
-				randomGenerator.nextDouble());
-		ExceptionUtility.assertAsException(topic >= 0 && topic < p.length,
+		ExceptionUtility.assertAsException(topic >= 0 && topic < param.T,
 				"Something is wrong with inverse transform sampling.");
 
 		z[d][n] = topic;
-		updateCount(d, n, topic, word, +1);
+		updateCount(state, d, n, topic, word, +1);
 
 		if (resampleCannotWords && cannotLinks != null) {
 			// M-GPU model.
@@ -337,113 +740,104 @@ public class AMC extends TopicModel {
 							: cannotLink.wordpair.wordstr1;
 					int cannotWord = corpus.vocab
 							.getWordidByWordstr(theOtherWordstr);
-					// Move one cannot word to other topic urn.
-					WordTopicAssignments cannotWordTopicAssignments = wtaOfWordUnderTopic[topic][cannotWord];
-					if (cannotWordTopicAssignments.size() == 0) {
-						// There is no cannot word in this topic to
-						// sample.
-						continue;
-					}
-					WordTopicAssignment wta = sampleOneCannotWordFromWordTopicAssignments(
-							topic, cannotWordTopicAssignments);
-					int docId = wta.documentId;
-					int wordIndexOfDoc = wta.wordIndex;
-					ExceptionUtility.assertAsException(wta.topicId == topic,
-							"The sampled cannot word was not in this topic!");
-					HashSet<Integer> hsTransferedTopics = getTopicsWithHigherWordProbability(
-							wta.topicId, wta.wordId);
-					if (hsTransferedTopics.size() > 0) {
-						// There are valid topics to move.
-						// Sample a new topic for this word.
-						sampleTopicAssignment(docId, wordIndexOfDoc, false,
-								hsTransferedTopics);
-						ExceptionUtility
-								.assertAsException(
-										z[docId][wordIndexOfDoc] != topic,
-										"The transferred new topic should not the same as old topic!");
+					if (state.isSequential()) {
+						transferOneCannotWord(topic, cannotWord);
+					} else {
+						// Other documents cannot be resampled while the
+						// partitions are sampled in parallel.
+						state.deferredCannotWordTransfers.add(new int[] {
+								topic, cannotWord });
 					}
 				}
 			}
 		}
 	}
 
+	/**
+	 * Move one cannot word under the topic to other topic urn, using the
+	 * sequential sampler.
+	 */
+	private void transferOneCannotWord(int topic, int cannotWord) {
+		WordTopicAssignments cannotWordTopicAssignments = wtaOfWordUnderTopic[topic][cannotWord];
+		if (cannotWordTopicAssignments.size() == 0) {
+			// There is no cannot word in this topic to
+			// sample.
+			return;
+		}
+		WordTopicAssignment wta = sampleOneCannotWordFromWordTopicAssignments(
+				topic, cannotWordTopicAssignments);
+		int docId = wta.documentId;
+		int wordIndexOfDoc = wta.wordIndex;
+		ExceptionUtility.assertAsException(wta.topicId == topic,
+				"The sampled cannot word was not in this topic!");
+		HashSet<Integer> hsTransferedTopics = getTopicsWithHigherWordProbability(
+				wta.topicId, wta.wordId);
+		if (hsTransferedTopics.size() > 0) {
+			// There are valid topics to move.
+			// Sample a new topic for this word.
+			sampleTopicAssignment(sequentialState, docId, wordIndexOfDoc,
+					false, hsTransferedTopics);
+			++sequentialState.noofCannotWordTransfers;
+			ExceptionUtility
+					.assertAsException(z[docId][wordIndexOfDoc] != topic,
+							"The transferred new topic should not the same as old topic!");
+		}
+	}
+
 	/**
 	 * Update the counts in the Gibbs sampler.
 	 */
-	private void updateCount(int d, int n, int topic, int word, int flag) {
+	private void updateCount(AMCSamplerState state, int d, int n, int topic,
+			int word, int flag) {
+		double[] ntsum = state.ntsum;
 		ndt[d][topic] += flag;
 		ndsum[d] += flag;
 
-		if (flag > 0 && mustLinks != null) {
+		if (flag > 0 && promotedWordidsOfWord != null) {
 			// Sample a must-link that represents the word meaning of this word.
-			String wordstr = corpus.vocab.getWordstrByWordid(word);
-			ArrayList<MustLink> mustLinkListGivenWord = mustLinks
-					.getMustLinkListGivenWordstr(wordstr);
-			if (mustLinkListGivenWord != null
-					&& mustLinkListGivenWord.size() > 0) {
-				double[] p_of_mustLink = new double[mustLinkListGivenWord
-						.size()];
-				for (int i = 0; i < mustLinkListGivenWord.size(); ++i) {
-					MustLink mustLink = mustLinkListGivenWord.get(i);
-					p_of_mustLink[i] = getProbOfMustLinkUnderTopicGivenCurrentMarkovStatus(
-							topic, mustLink);
+			int[] otherWordids = mustLinkOtherWordidOfWord[word];
+			int size = otherWordids.length;
+			if (size > 0) {
+				// The probability of a must-link under the topic is the product
+				// of the probabilities of its two words. Every candidate
+				// contains this word and shares the normaliser of the topic, so
+				// only the count of the other word is needed.
+				double[] p_of_mustLink = state.p_of_mustLink;
+				for (int i = 0; i < size; ++i) {
+					p_of_mustLink[i] = state.getTopicWordCount(
+							otherWordids[i], topic)
+							+ param.beta;
 				}
-				int index = InverseTransformSampler.sample(p_of_mustLink,
-						randomGenerator.nextDouble());
-				ExceptionUtility.assertAsException(index >= 0
-						&& index < p_of_mustLink.length,
+				int index = InverseTransformSampler.sample(p_of_mustLink, size,
+						state.randomGenerator.nextDouble());
+				ExceptionUtility.assertAsException(index >= 0 && index < size,
 						"Something is wrong with inverse transform sampling.");
-				// The sampled must-link.
-				MustLink sampledMustLink = mustLinkListGivenWord.get(index);
-				int sampledMustLinkId = mpMustLinkToMustLinkId
-						.get(sampledMustLink);
-				// Get one-degree neighbors in the must-link graph.
-				ArrayList<Integer> linkedListInGraph = mustLinkGraph
-						.get(sampledMustLinkId);
-				ArrayList<MustLink> sampledMustLinkList = new ArrayList<MustLink>();
-				for (int nodeId : linkedListInGraph) {
-					MustLink mustLink = mpMustLinkIdToMustLink.get(nodeId);
-					if (mustLink.wordpair.wordstr1.equals(wordstr)
-							|| mustLink.wordpair.wordstr2.equals(wordstr)) {
-						// It must contain this word.
-						sampledMustLinkList.add(mustLink);
-						double value = mpMustLinkIdToGPUValue.get(nodeId);
-						String theOtherWordstr = mustLink.wordpair.wordstr1
-								.equals(wordstr) ? mustLink.wordpair.wordstr2
-								: mustLink.wordpair.wordstr1;
-						int w2 = corpus.vocab
-								.getWordidByWordstr(theOtherWordstr);
-						ntw[topic][w2] += flag * value;
-						ntsum[topic] += flag * value;
-					}
-				}
-				sampledMustLinkListForEachWord.get(d).set(n,
-						sampledMustLinkList);
+				// Promote the words of the must-links that are one-degree
+				// neighbors of the sampled must-link in the must-link graph.
+				promoteMustLinkedWords(state, topic, word, index, flag);
+				sampledMustLinkIndexForEachWord[d][n] = index;
+				++state.noofMustLinksSampled;
 			}
-		} else if (mustLinks != null) {
+		} else if (promotedWordidsOfWord != null) {
 			// Revert the sampling effects by looking up at the records in
-			// sampledMustLinkListForEachWord.
-			String wordstr = corpus.vocab.getWordstrByWordid(word);
-			ArrayList<MustLink> sampledMustLinkList = sampledMustLinkListForEachWord
-					.get(d).get(n);
-			for (MustLink mustLink : sampledMustLinkList) {
-				int mustLink_id = mpMustLinkToMustLinkId.get(mustLink);
-				double value = mpMustLinkIdToGPUValue.get(mustLink_id);
-				String theOtherWordstr = mustLink.wordpair.wordstr1
-						.equals(wordstr) ? mustLink.wordpair.wordstr2
-						: mustLink.wordpair.wordstr1;
-				int w2 = corpus.vocab.getWordidByWordstr(theOtherWordstr);
-				ntw[topic][w2] += flag * value;
-				ntsum[topic] += flag * value;
+			// sampledMustLinkIndexForEachWord.
+			int index = sampledMustLinkIndexForEachWord[d][n];
+			if (index >= 0) {
+				promoteMustLinkedWords(state, topic, word, index, flag);
+				// Clear the record.
+				sampledMustLinkIndexForEachWord[d][n] = -1;
 			}
-			// Clear the record.
-			sampledMustLinkListForEachWord.get(d).set(n,
-					new ArrayList<MustLink>());
 		}
 
-		ntw[topic][word] += flag;
+		state.addTopicWordCount(word, topic, flag);
 		ntsum[topic] += flag;
+		// The GPU promotions above only change the counts under the topic.
+		state.kernel.setTopicCount(topic, ntsum[topic]);
 
+		if (!state.isSequential()) {
+			// wtaOfWordUnderTopic is rebuilt after the parallel sweep.
+			return;
+		}
 		if (flag > 0) {
 			// Record this word with the topic assignment for cannot
 			// words transfer.
@@ -458,6 +852,22 @@ public class AMC extends TopicModel {
 		}
 	}
 
+	/**
+	 * Add (flag > 0) or remove (flag < 0) the GPU promotions of the index-th
+	 * must-link of the word under the topic.
+	 */
+	private void promoteMustLinkedWords(AMCSamplerState state, int topic,
+			int word, int index, int flag) {
+		double[] ntsum = state.ntsum;
+		int[] promotedWordids = promotedWordidsOfWord[word][index];
+		double[] promotedValues = promotedValuesOfWord[word][index];
+		for (int k = 0; k < promotedWordids.length; ++k) {
+			state.addTopicWordCount(promotedWordids[k], topic, flag
+					* promotedValues[k]);
+			ntsum[topic] += flag * promotedValues[k];
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	// Knowledge Related.
 	// ------------------------------------------------------------------------
@@ -470,8 +880,7 @@ public class AMC extends TopicModel {
 		int MS = mustLinks.size();
 		// Initialization.
 		mpMustLinkToMustLinkId = new HashMap<MustLink, Integer>();
-		mpMustLinkIdToMustLink = new HashMap<Integer, MustLink>();
-		mpMustLinkIdToGPUValue = new HashMap<Integer, Double>();
+		mustLinkGPUValues = new double[MS];
 		mustLinkGraph = new ArrayList<ArrayList<Integer>>();
 		for (int i = 0; i < MS; ++i) {
 			mustLinkGraph.add(new ArrayList<Integer>());
@@ -480,27 +889,39 @@ public class AMC extends TopicModel {
 		for (int i = 0; i < MS; ++i) {
 			MustLink mustLink = mustLinks.getMustLink(i);
 			mpMustLinkToMustLinkId.put(mustLink, i);
-			mpMustLinkIdToMustLink.put(i, mustLink);
-			mpMustLinkIdToGPUValue.put(i, getGPULambdaValue(mustLink));
+			mustLinkGPUValues[i] = getGPULambdaValue(mustLink);
 		}
 
 		TopicOverlappingOfMustLinks topicOverlappingHandle = new TopicOverlappingOfMustLinks(
-				priorTopicsForKnowledgeExtraction);
+				priorTopicsForKnowledgeExtraction, corpus.globalVocabulary);
+		// Look up the id and the topic list of each must-link once instead of
+		// for each pair of must-links.
+		int[] mustLinkIds = new int[MS];
+		ArrayList<ArrayList<Topic>> topicListOfMustLinks = new ArrayList<ArrayList<Topic>>(
+				MS);
+		for (int i = 0; i < MS; ++i) {
+			MustLink mustLink = mustLinks.getMustLink(i);
+			mustLinkIds[i] = mpMustLinkToMustLinkId.get(mustLink);
+			topicListOfMustLinks.add(topicOverlappingHandle
+					.getTopicList(mustLink));
+		}
 
 		// Compute the edge weight of each pair of must-links in the graph.
 		for (int i = 0; i < MS; ++i) {
 			MustLink mustLink_i = mustLinks.getMustLink(i);
-			int mustLink_i_id = mpMustLinkToMustLinkId.get(mustLink_i);
+			int mustLink_i_id = mustLinkIds[i];
 			mustLinkGraph.get(mustLink_i_id).add(mustLink_i_id);
 			for (int j = i + 1; j < MS; ++j) {
 				if (i == j) {
 					continue;
 				}
 				MustLink mustLink_j = mustLinks.getMustLink(j);
-				int mustLink_j_id = mpMustLinkToMustLinkId.get(mustLink_j);
+				int mustLink_j_id = mustLinkIds[j];
 				if (mustLink_i.sharesAWordWithMustLink(mustLink_j)) {
 					int topicOverlappingCount = topicOverlappingHandle
-							.getTopicOverlappingCount(mustLink_i, mustLink_j);
+							.getTopicOverlappingCount(
+									topicListOfMustLinks.get(i),
+									topicListOfMustLinks.get(j));
 					double ratio = 1.0 * topicOverlappingCount
 							/ Math.max(mustLink_i.weight, mustLink_j.weight);
 					if (ratio > param.mustLinkGraphCutRatioThreshold) {
@@ -510,6 +931,66 @@ public class AMC extends TopicModel {
 				}
 			}
 		}
+
+		cacheGPUPromotions();
+	}
+
+	/**
+	 * Cache the GPU promotions of each must-link of each word from the
+	 * must-link graph, so that sampling must-links in updateCount() only
+	 * touches primitive arrays.
+	 */
+	private void cacheGPUPromotions() {
+		mustLinkOtherWordidOfWord = new int[param.V][];
+		promotedWordidsOfWord = new int[param.V][][];
+		promotedValuesOfWord = new double[param.V][][];
+		int maxNoofMustLinks = 0;
+		for (int w = 0; w < param.V; ++w) {
+			String wordstr = corpus.vocab.getWordstrByWordid(w);
+			ArrayList<MustLink> mustLinkListGivenWord = mustLinks
+					.getMustLinkListGivenWordstr(wordstr);
+			int size = mustLinkListGivenWord.size();
+			maxNoofMustLinks = Math.max(maxNoofMustLinks, size);
+			mustLinkOtherWordidOfWord[w] = new int[size];
+			promotedWordidsOfWord[w] = new int[size][];
+			promotedValuesOfWord[w] = new double[size][];
+			for (int i = 0; i < size; ++i) {
+				MustLink mustLink = mustLinkListGivenWord.get(i);
+				mustLinkOtherWordidOfWord[w][i] = getTheOtherWordid(mustLink,
+						wordstr);
+				// Get one-degree neighbors in the must-link graph which must
+				// contain this word.
+				ArrayList<Integer> linkedListInGraph = mustLinkGraph
+						.get(mpMustLinkToMustLinkId.get(mustLink));
+				ArrayList<Integer> promotedNodeIds = new ArrayList<Integer>();
+				for (int nodeId : linkedListInGraph) {
+					MustLink linkedMustLink = mustLinks.getMustLink(nodeId);
+					if (linkedMustLink.wordpair.wordstr1.equals(wordstr)
+							|| linkedMustLink.wordpair.wordstr2.equals(wordstr)) {
+						promotedNodeIds.add(nodeId);
+					}
+				}
+				int K = promotedNodeIds.size();
+				promotedWordidsOfWord[w][i] = new int[K];
+				promotedValuesOfWord[w][i] = new double[K];
+				for (int k = 0; k < K; ++k) {
+					int nodeId = promotedNodeIds.get(k);
+					promotedWordidsOfWord[w][i][k] = getTheOtherWordid(
+							mustLinks.getMustLink(nodeId), wordstr);
+					promotedValuesOfWord[w][i][k] = mustLinkGPUValues[nodeId];
+				}
+			}
+		}
+		maxNoofMustLinksOfWord = maxNoofMustLinks;
+	}
+
+	/**
+	 * Get the word id of the word in the must-link other than wordstr.
+	 */
+	private int getTheOtherWordid(MustLink mustLink, String wordstr) {
+		String theOtherWordstr = mustLink.wordpair.wordstr1.equals(wordstr) ? mustLink.wordpair.wordstr2
+				: mustLink.wordpair.wordstr1;
+		return corpus.vocab.getWordidByWordstr(theOtherWordstr);
 	}
 
 	/**
@@ -544,20 +1025,6 @@ public class AMC extends TopicModel {
 		return 0;
 	}
 
-	private double getProbOfMustLinkUnderTopicGivenCurrentMarkovStatus(
-			int topicId, MustLink mustLink) {
-		int wordId1 = corpus.vocab
-				.getWordidByWordstr(mustLink.wordpair.wordstr1);
-		int wordId2 = corpus.vocab
-				.getWordidByWordstr(mustLink.wordpair.wordstr2);
-		double prob1 = getProbOfWordUnderTopicGivenCurrentMarkovStatus(topicId,
-				wordId1);
-		double prob2 = getProbOfWordUnderTopicGivenCurrentMarkovStatus(topicId,
-				wordId2);
-		double prob = prob1 * prob2;
-		return prob;
-	}
-
 	/************************* Cannot-Link Related *****************************/
 	/**
 	 * Sample one cannot word from a list of WordTopicAssignment.
@@ -575,7 +1042,7 @@ public class AMC extends TopicModel {
 			int w = cannotWordTopicAssignments.get(i).wordId;
 			int t = z[d][n];
 			p[i] = (ndt[d][t] + param.alpha) / (ndsum[d] + tAlpha)
-					* (ntw[t][w] + param.beta) / (ntsum[t] + vBeta);
+					* (nwt.get(w, t) + param.beta) / (ntsum[t] + vBeta);
 		}
 		int index = InverseTransformSampler.sample(p,
 				randomGenerator.nextDouble());
@@ -613,35 +1080,14 @@ public class AMC extends TopicModel {
 	 * Get the probability of a word under a topic given current Markov status.
 	 */
 	private double getProbOfWordUnderTopicGivenCurrentMarkovStatus(int t, int w) {
-		return (ntw[t][w] + param.beta) / (ntsum[t] + vBeta);
+		return (nwt.get(w, t) + param.beta) / (ntsum[t] + vBeta);
 	}
 
 	/**
 	 * Get the top words under each topic given current Markov status.
 	 */
-	private ArrayList<PriorityQueue<Integer>> getTopWordsUnderEachTopicGivenCurrentMarkovStatus() {
-		ArrayList<PriorityQueue<Integer>> topWordIDList = new ArrayList<PriorityQueue<Integer>>();
-		int top_words = param.numberOfTopWordsUnderPriorTopicsForKnowledgeExtraction;
-
-		for (int t = 0; t < param.T; ++t) {
-			Comparator<Integer> comparator = new TopicalWordComparator(phi[t]);
-			PriorityQueue<Integer> pqueue = new PriorityQueue<Integer>(
-					top_words, comparator);
-
-			for (int w = 0; w < param.V; ++w) {
-				if (pqueue.size() < top_words) {
-					pqueue.add(w);
-				} else {
-					if (phi[t][w] > phi[t][pqueue.peek()]) {
-						pqueue.poll();
-						pqueue.add(w);
-					}
-				}
-			}
-
-			topWordIDList.add(pqueue);
-		}
-		return topWordIDList;
+	private int[][] getTopWordsUnderEachTopicGivenCurrentMarkovStatus() {
+		return getTopWordsUnderEachTopic(phi);
 	}
 
 	// ------------------------------------------------------------------------
@@ -650,21 +1096,51 @@ public class AMC extends TopicModel {
 
 	/**
 	 * After burn in phase, update the posterior distributions every sample lag.
+	 * The documents (thetasum) and the words (phisum) are split among the
+	 * posterior threads, and the denominators are computed once per document
+	 * and per topic.
 	 */
 	private void updatePosteriorDistribution() {
-		for (int d = 0; d < param.D; ++d) {
-			for (int t = 0; t < param.T; ++t) {
-				thetasum[d][t] += (ndt[d][t] + param.alpha)
-						/ (ndsum[d] + tAlpha);
-			}
-		}
+		ParallelRanges.run(param.D, param.numberOfPosteriorThreads,
+				new ParallelRanges.RangeTask() {
+					@Override
+					public void compute(int start, int end) {
+						for (int d = start; d < end; ++d) {
+							double denominator = ndsum[d] + tAlpha;
+							for (int t = 0; t < param.T; ++t) {
+								thetasum.add(d, t, (ndt[d][t] + param.alpha)
+										/ denominator);
+							}
+						}
+					}
+				});
+
+		final double[] denominators = getTopicWordDenominators();
+		ParallelRanges.run(param.V, param.numberOfPosteriorThreads,
+				new ParallelRanges.RangeTask() {
+					@Override
+					public void compute(int start, int end) {
+						for (int w = start; w < end; ++w) {
+							for (int t = 0; t < param.T; ++t) {
+								phisum.add(t, w, (nwt.get(w, t) + param.beta)
+										/ denominators[t]);
+							}
+						}
+					}
+				});
+		++numstats;
+	}
 
+	/**
+	 * Get the denominator of phi[t][] given current Markov status for each
+	 * topic t.
+	 */
+	private double[] getTopicWordDenominators() {
+		double[] denominators = new double[param.T];
 		for (int t = 0; t < param.T; ++t) {
-			for (int w = 0; w < param.V; ++w) {
-				phisum[t][w] += (ntw[t][w] + param.beta) / (ntsum[t] + vBeta);
-			}
+			denominators[t] = ntsum[t] + vBeta;
 		}
-		++numstats;
+		return denominators;
 	}
 
 	/**
@@ -679,39 +1155,42 @@ public class AMC extends TopicModel {
 	 * Document-topic distribution: theta[][].
 	 */
 	private void computeDocumentTopicDistribution(int slag) {
-		if (slag > 0) {
-			for (int d = 0; d < param.D; ++d) {
-				for (int t = 0; t < param.T; ++t) {
-					theta[d][t] = thetasum[d][t] / numstats;
-				}
-			}
-		} else {
-			for (int d = 0; d < param.D; ++d) {
-				for (int t = 0; t < param.T; ++t) {
-					theta[d][t] = (ndt[d][t] + param.alpha)
-							/ (ndsum[d] + tAlpha);
-				}
-			}
-		}
+		final boolean fromSums = slag > 0;
+		ParallelRanges.run(param.D, param.numberOfPosteriorThreads,
+				new ParallelRanges.RangeTask() {
+					@Override
+					public void compute(int start, int end) {
+						for (int d = start; d < end; ++d) {
+							double denominator = ndsum[d] + tAlpha;
+							for (int t = 0; t < param.T; ++t) {
+								theta[d][t] = fromSums ? thetasum.get(d, t)
+										/ numstats : (ndt[d][t] + param.alpha)
+										/ denominator;
+							}
+						}
+					}
+				});
 	}
 
 	/**
 	 * Topic-word distribution: phi[][].
 	 */
 	private void computeTopicWordDistribution(int slag) {
-		if (slag > 0) {
-			for (int t = 0; t < param.T; ++t) {
-				for (int w = 0; w < param.V; ++w) {
-					phi[t][w] = phisum[t][w] / numstats;
-				}
-			}
-		} else {
-			for (int t = 0; t < param.T; ++t) {
-				for (int w = 0; w < param.V; ++w) {
-					phi[t][w] = (ntw[t][w] + param.beta) / (ntsum[t] + vBeta);
-				}
-			}
-		}
+		final boolean fromSums = slag > 0;
+		final double[] denominators = getTopicWordDenominators();
+		ParallelRanges.run(param.V, param.numberOfPosteriorThreads,
+				new ParallelRanges.RangeTask() {
+					@Override
+					public void compute(int start, int end) {
+						for (int w = start; w < end; ++w) {
+							for (int t = 0; t < param.T; ++t) {
+								phi[t][w] = fromSums ? phisum.get(t, w)
+										/ numstats : (nwt.get(w, t) + param.beta)
+										/ denominators[t];
+							}
+						}
+					}
+				});
 	}
 
 	@Override
@@ -720,8 +1199,8 @@ public class AMC extends TopicModel {
 	}
 
 	@Override
-	public double[][] getDocumentTopicDistrbution() {
-		return theta;
+	public double[] getDocumentTopicDistribution(int d) {
+		return theta[d];
 	}
 
 	@Override
@@ -741,22 +1220,144 @@ public class AMC extends TopicModel {
 }
 
 /**
- * Comparator to rank the words according to their probabilities.
+ * The counts and the random number generator that a Gibbs sampler of AMC
+ * updates. The sequential sampler updates the topic-word counts of the model
+ * directly, while the sampler of each document partition updates its own copy
+ * which is merged into the model after each sweep.
  */
-class TopicalWordComparator implements Comparator<Integer> {
-	private double[] distribution = null;
+class AMCSamplerState implements CountMatrix {
+	// The topic-word counts of the model. A partition only reads them and
+	// keeps its changes in nwtChanges.
+	public TopicWordCounts nwt = null;
+	public double[] ntsum = null;
+	// The kernel computing the topic probabilities of a token with ntsum[].
+	public TopicProbabilityKernel kernel = null;
+	public RandomGenerator randomGenerator = null;
+	// The buffers of topic and must-link probabilities reused while sampling.
+	public double[] p_of_topic = null;
+	public double[] p_of_mustLink = null;
+	// The documents [firstDocument, endDocument) of the partition.
+	public int firstDocument = 0;
+	public int endDocument = 0;
+	// The (topic, cannot word) transfers found while sampling the partition.
+	// It is null for the sequential sampler which transfers immediately.
+	public ArrayList<int[]> deferredCannotWordTransfers = null;
+	// The numbers of must-links sampled and cannot words transferred (by the
+	// sequential sampler only).
+	public long noofMustLinksSampled = 0;
+	public long noofCannotWordTransfers = 0;
+	// The changes of the topic-word counts made by the partition in the
+	// sweep, nwtChanges[w][t], whose rows are allocated when word w is
+	// changed for the first time, and the words changed in the sweep. They
+	// are null for the sequential sampler which changes nwt directly.
+	private double[][] nwtChanges = null;
+	private boolean[] isWordChanged = null;
+	private int[] changedWordids = null;
+	private int noofChangedWords = 0;
+
+	/**
+	 * Create the state of the sequential sampler.
+	 */
+	public AMCSamplerState(TopicWordCounts nwt2, double[] ntsum2,
+			TopicProbabilityKernel kernel2, RandomGenerator randomGenerator2,
+			int maxNoofMustLinksOfWord) {
+		nwt = nwt2;
+		ntsum = ntsum2;
+		kernel = kernel2;
+		kernel.setTopicCounts(ntsum);
+		randomGenerator = randomGenerator2;
+		p_of_topic = new double[ntsum.length];
+		p_of_mustLink = new double[maxNoofMustLinksOfWord];
+	}
 
-	public TopicalWordComparator(double[] distribution2) {
-		distribution = distribution2;
+	/**
+	 * Create the state of the sampler of the documents [firstDocument2,
+	 * endDocument2) reading the topic-word counts nwt2 of the model.
+	 */
+	public AMCSamplerState(TopicWordCounts nwt2, int T, int V,
+			TopicProbabilityKernel kernel2, RandomGenerator randomGenerator2,
+			int maxNoofMustLinksOfWord, int firstDocument2, int endDocument2) {
+		nwt = nwt2;
+		ntsum = new double[T];
+		kernel = kernel2;
+		randomGenerator = randomGenerator2;
+		p_of_topic = new double[T];
+		p_of_mustLink = new double[maxNoofMustLinksOfWord];
+		firstDocument = firstDocument2;
+		endDocument = endDocument2;
+		deferredCannotWordTransfers = new ArrayList<int[]>();
+		nwtChanges = new double[V][];
+		isWordChanged = new boolean[V];
+		changedWordids = new int[V];
+	}
+
+	public boolean isSequential() {
+		return deferredCannotWordTransfers == null;
+	}
+
+	/**
+	 * Start the sweep from the current topic counts ntsum2 of the model.
+	 */
+	public void startSweep(double[] ntsum2) {
+		System.arraycopy(ntsum2, 0, ntsum, 0, ntsum.length);
+		kernel.setTopicCounts(ntsum);
+	}
+
+	/**
+	 * Get nwt[w][t] as seen by this sampler.
+	 */
+	public double getTopicWordCount(int w, int t) {
+		if (nwtChanges == null || nwtChanges[w] == null) {
+			return nwt.get(w, t);
+		}
+		return nwt.get(w, t) + nwtChanges[w][t];
+	}
+
+	/**
+	 * Add value to nwt[w][t] as seen by this sampler.
+	 */
+	public void addTopicWordCount(int w, int t, double value) {
+		if (nwtChanges == null) {
+			nwt.add(w, t, value);
+			return;
+		}
+		if (nwtChanges[w] == null) {
+			nwtChanges[w] = new double[p_of_topic.length];
+		}
+		if (!isWordChanged[w]) {
+			isWordChanged[w] = true;
+			changedWordids[noofChangedWords++] = w;
+		}
+		nwtChanges[w][t] += value;
 	}
 
 	@Override
-	public int compare(Integer w1, Integer w2) {
-		if (distribution[w1] < distribution[w2]) {
-			return -1;
-		} else if (distribution[w1] > distribution[w2]) {
-			return 1;
+	public void copyRow(int row, double[] buffer) {
+		nwt.copyRow(row, buffer);
+		if (nwtChanges != null && nwtChanges[row] != null) {
+			double[] changes_row = nwtChanges[row];
+			for (int t = 0; t < buffer.length; ++t) {
+				buffer[t] += changes_row[t];
+			}
 		}
-		return 0;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Add the changes of the sweep into the topic-word counts of the model
+	 * and reset them for the next sweep.
+	 */
+	public void addTopicWordCountChangesTo(TopicWordCounts nwt2) {
+		for (int i = 0; i < noofChangedWords; ++i) {
+			int w = changedWordids[i];
+			double[] changes_w = nwtChanges[w];
+			for (int t = 0; t < changes_w.length; ++t) {
+				if (changes_w[t] != 0) {
+					nwt2.add(w, t, changes_w[t]);
+					changes_w[t] = 0;
+				}
+			}
+			isWordChanged[w] = false;
+		}
+		noofChangedWords = 0;
+	}
+}
@@ -1,8 +1,14 @@
 package model;
 
+import metrics.GibbsSweepEvent;
+import metrics.ModelMetrics;
 import nlp.Corpus;
 import utility.ArrayAllocationAndInitialization;
+import utility.CountMatrices;
+import utility.CountMatrix;
 import utility.InverseTransformSampler;
+import utility.ParallelRanges;
+import utility.TopicProbabilityKernel;
 
 /**
  * This implements the LDA model (Blei et al., 2003).
@@ -16,28 +22,45 @@ public class LDA extends TopicModel {
 	// beta is in the variable param in TopicModel.
 	private double vBeta = 0;
 
+	// The document-topic counts are stored sparsely (if
+	// param.documentTopicStorage is auto) when the documents have on average
+	// fewer than 1 / SPARSE_DOCUMENT_LENGTH_RATIO as many tokens as topics.
+	private static final int SPARSE_DOCUMENT_LENGTH_RATIO = 4;
+
 	/******************* Posterior distributions *********************/
 	private double[][] theta = null; // Document-topic distribution, size D * T.
-	private double[][] thetasum = null; // Cumulative document-topic
-										// distribution, size
-										// D * T.
+	private PosteriorSums thetasum = null; // Cumulative document-topic
+											// distribution, size
+											// D * T.
 	private double[][] phi = null; // Topic-word distribution, size T * V.
-	private double[][] phisum = null; // Cumulative topic-word distribution,
-										// size T * V.
+	private PosteriorSums phisum = null; // Cumulative topic-word
+											// distribution, size T * V.
 	// Number of times to add the sum arrays, such as thetasum and phisum.
 	public int numstats = 0;
 
 	/******************* Temp variables while sampling *********************/
 	// z is defined in the superclass TopicModel.
 	// private int[][] z = null; // Topic assignments for each word.
-	// ndt[d][t]: the counts of document d having topic t.
+	// ndt[d][t]: the counts of document d having topic t. If the documents
+	// are short compared with the number of topics, the counts are kept in
+	// sparseNdt instead and ndt is null.
 	private int[][] ndt = null;
+	private SparseDocumentTopicCounts sparseNdt = null;
+	// The dense counts of the document being sampled if sparseNdt is used.
+	private int[] ndtOfDocument = null;
 	// ndsum[d]: the counts of document d having any topic.
 	private int[] ndsum = null;
-	// ntw[t][w]: the counts of word w appearing under topic t.
-	private int[][] ntw = null;
+	// nwt[w][t]: the counts of word w appearing under topic t. The counts of
+	// a word are contiguous since sampling a token reads them for all topics.
+	private int[][] nwt = null;
+	// nwt[][] read by the kernel.
+	private CountMatrix nwtMatrix = null;
 	// ntsum[t]: the counts of any word appearing under topic t.
 	private int[] ntsum = null;
+	// The buffer of the cumulative topic probabilities of a token.
+	private double[] p = null;
+	// The kernel computing the topic probabilities of a token.
+	private TopicProbabilityKernel kernel = null;
 
 	/**
 	 * Create a new topic model with all variables initialized. The z[][] is
@@ -49,7 +72,8 @@ public class LDA extends TopicModel {
 		vBeta = param.V * param.beta;
 		// Allocate memory for temporary variables and initialize their
 		// values.
-		allocateMemoryForTempVariables();
+		allocateMemoryForTempVariables(useSparseDocumentTopicCounts(docs,
+				param));
 		// Initialize the first status of Markov chain randomly.
 		initializeFirstMarkovChainRandomly();
 	}
@@ -65,7 +89,7 @@ public class LDA extends TopicModel {
 		vBeta = param.V * param.beta;
 		// Allocate memory for temporary variables and initialize their
 		// values.
-		allocateMemoryForTempVariables();
+		allocateMemoryForTempVariables(false);
 		// Assign z2 to z.
 		z = z2;
 		// Assign topic-word distribution.
@@ -76,33 +100,63 @@ public class LDA extends TopicModel {
 	// Memory Allocation and Initialization
 	// ------------------------------------------------------------------------
 
+	/**
+	 * Check if the document-topic counts are stored sparsely, given
+	 * param.documentTopicStorage: dense, sparse or auto (sparse if the
+	 * documents have on average fewer than a quarter as many tokens as
+	 * topics).
+	 */
+	public static boolean useSparseDocumentTopicCounts(int[][] docs,
+			ModelParameters param) {
+		if (param.documentTopicStorage.equals("sparse")) {
+			return true;
+		} else if (param.documentTopicStorage.equals("auto")) {
+			return SparseDocumentTopicCounts.isSparseEnough(docs, param.T,
+					SPARSE_DOCUMENT_LENGTH_RATIO);
+		}
+		return false;
+	}
+
 	/**
 	 * Allocate memory for temporary variables and initialize their values. Note
 	 * that z[][] is not created in this function, but in the function
-	 * initializeFirstMarkovChainRandomly().
+	 * initializeFirstMarkovChainRandomly(). With sparse document-topic counts,
+	 * theta[][] is not allocated either, but computed per document when it is
+	 * printed (see getDocumentTopicDistribution()).
 	 */
-	private void allocateMemoryForTempVariables() {
+	private void allocateMemoryForTempVariables(boolean sparse) {
 		/******************* Posterior distributions *********************/
-		theta = ArrayAllocationAndInitialization.allocateAndInitialize(theta,
-				param.D, param.T);
+		if (!sparse) {
+			theta = ArrayAllocationAndInitialization.allocateAndInitialize(
+					theta, param.D, param.T);
+		}
 		phi = ArrayAllocationAndInitialization.allocateAndInitialize(phi,
 				param.T, param.V);
 		if (param.sampleLag > 0) {
-			thetasum = ArrayAllocationAndInitialization.allocateAndInitialize(
-					thetasum, param.D, param.T);
-			phisum = ArrayAllocationAndInitialization.allocateAndInitialize(
-					phisum, param.T, param.V);
+			thetasum = new PosteriorSums(param.D, param.T,
+					param.useFloatPosteriorSums);
+			phisum = new PosteriorSums(param.T, param.V,
+					param.useFloatPosteriorSums);
 		}
 
 		/******************* Temp variables while sampling *********************/
-		ndt = ArrayAllocationAndInitialization.allocateAndInitialize(ndt,
-				param.D, param.T);
+		if (sparse) {
+			sparseNdt = new SparseDocumentTopicCounts(docs, param.T);
+			ndtOfDocument = new int[param.T];
+		} else {
+			ndt = ArrayAllocationAndInitialization.allocateAndInitialize(ndt,
+					param.D, param.T);
+		}
 		ndsum = ArrayAllocationAndInitialization.allocateAndInitialize(ndsum,
 				param.D);
-		ntw = ArrayAllocationAndInitialization.allocateAndInitialize(ntw,
-				param.T, param.V);
+		nwt = ArrayAllocationAndInitialization.allocateAndInitialize(nwt,
+				param.V, param.T);
 		ntsum = ArrayAllocationAndInitialization.allocateAndInitialize(ntsum,
 				param.T);
+		nwtMatrix = CountMatrices.of(nwt);
+		p = new double[param.T];
+		kernel = new TopicProbabilityKernel(param.T, param.alpha, param.beta,
+				vBeta, param.useVectorizedKernel);
 	}
 
 	/**
@@ -114,6 +168,7 @@ public class LDA extends TopicModel {
 		for (int d = 0; d < param.D; ++d) {
 			int N = docs[d].length;
 			z[d] = new int[N];
+			int[] ndt_d = getDocumentTopicCountsForSampling(d);
 
 			for (int n = 0; n < N; ++n) {
 				int word = docs[d][n];
@@ -121,8 +176,9 @@ public class LDA extends TopicModel {
 						* param.T);
 				z[d][n] = topic;
 
-				updateCount(d, topic, word, +1);
+				updateCount(ndt_d, d, topic, word, +1);
 			}
+			putDocumentTopicCountsAfterSampling(d, ndt_d);
 		}
 	}
 
@@ -138,7 +194,10 @@ public class LDA extends TopicModel {
 		// 1. Run a certain number of Gibbs Sampling sweeps.
 		runGibbsSampling();
 		// 2. Compute the posterior distributions.
+		long startTime = System.nanoTime();
 		computePosteriorDistribution();
+		metrics.addPhaseTime(ModelMetrics.POSTERIOR, System.nanoTime()
+				- startTime);
 	}
 
 	// ------------------------------------------------------------------------
@@ -149,13 +208,27 @@ public class LDA extends TopicModel {
 	 * Run a certain number of Gibbs Sampling sweeps.
 	 */
 	private void runGibbsSampling() {
+		long noofTokens = getNoofTokens();
 		for (int i = 0; i < param.nIterations; ++i) {
+			GibbsSweepEvent event = new GibbsSweepEvent();
+			event.begin();
+			long startTime = System.nanoTime();
 			for (int d = 0; d < param.D; ++d) {
 				int N = docs[d].length;
+				int[] ndt_d = getDocumentTopicCountsForSampling(d);
 				for (int n = 0; n < N; ++n) {
 					// Sample from p(z_i|z_-i, w)
-					sampleTopicAssignment(d, n);
+					sampleTopicAssignment(ndt_d, d, n);
 				}
+				putDocumentTopicCountsAfterSampling(d, ndt_d);
+			}
+			metrics.addSweepTime(System.nanoTime() - startTime, noofTokens);
+			if (event.shouldCommit()) {
+				event.modelName = param.modelName;
+				event.domain = param.domain;
+				event.iteration = i;
+				event.noofTokens = noofTokens;
+				event.commit();
 			}
 
 			if (i >= param.nBurnin && param.sampleLag > 0
@@ -166,33 +239,54 @@ public class LDA extends TopicModel {
 	}
 
 	/**
-	 * Sample a topic assigned to the word in position n of document d.
+	 * Get the row of the topic counts of document d to sample its tokens,
+	 * expanded from the sparse counts if they are used.
 	 */
-	private void sampleTopicAssignment(int d, int n) {
+	private int[] getDocumentTopicCountsForSampling(int d) {
+		if (sparseNdt == null) {
+			return ndt[d];
+		}
+		sparseNdt.expand(d, ndtOfDocument);
+		return ndtOfDocument;
+	}
+
+	/**
+	 * Put back the row of the topic counts of document d after sampling its
+	 * tokens.
+	 */
+	private void putDocumentTopicCountsAfterSampling(int d, int[] ndt_d) {
+		if (sparseNdt != null) {
+			sparseNdt.compress(d, ndt_d);
+		}
+	}
+
+	/**
+	 * Sample a topic assigned to the word in position n of document d, whose
+	 * topic counts are ndt_d.
+	 */
+	private void sampleTopicAssignment(int[] ndt_d, int d, int n) {
 		int old_topic = z[d][n];
 		int word = docs[d][n];
-		updateCount(d, old_topic, word, -1);
+		updateCount(ndt_d, d, old_topic, word, -1);
 
-		double[] p = new double[param.T];
-		for (int t = 0; t < param.T; ++t) {
-			p[t] = (ndt[d][t] + param.alpha) / (ndsum[d] + tAlpha)
-					* (ntw[t][word] + param.beta) / (ntsum[t] + vBeta);
-		}
-		int new_topic = InverseTransformSampler.sample(p,
-				randomGenerator.nextDouble());
+		kernel.computeCumulativeProbabilities(p, ndt_d, ndsum[d] + tAlpha,
+				nwtMatrix, word);
+		int new_topic = InverseTransformSampler.sampleFromCumulative(p,
+				param.T, randomGenerator.nextDouble());
 
 		z[d][n] = new_topic;
-		updateCount(d, new_topic, word, +1);
+		updateCount(ndt_d, d, new_topic, word, +1);
 	}
 
 	/**
 	 * Update the counts in the Gibbs sampler.
 	 */
-	private void updateCount(int d, int topic, int word, int flag) {
-		ndt[d][topic] += flag;
+	private void updateCount(int[] ndt_d, int d, int topic, int word, int flag) {
+		ndt_d[topic] += flag;
 		ndsum[d] += flag;
-		ntw[topic][word] += flag;
+		nwt[word][topic] += flag;
 		ntsum[topic] += flag;
+		kernel.setTopicCount(topic, ntsum[topic]);
 	}
 
 	// ------------------------------------------------------------------------
@@ -201,21 +295,66 @@ public class LDA extends TopicModel {
 
 	/**
 	 * After burn in phase, update the posterior distributions every sample lag.
+	 * The documents (thetasum) and the words (phisum) are split among the
+	 * posterior threads, and the denominators are computed once per document
+	 * and per topic.
 	 */
 	private void updatePosteriorDistribution() {
-		for (int d = 0; d < param.D; ++d) {
-			for (int t = 0; t < param.T; ++t) {
-				thetasum[d][t] += (ndt[d][t] + param.alpha)
-						/ (ndsum[d] + tAlpha);
-			}
+		ParallelRanges.run(param.D, param.numberOfPosteriorThreads,
+				new ParallelRanges.RangeTask() {
+					@Override
+					public void compute(int start, int end) {
+						int[] row = new int[param.T];
+						for (int d = start; d < end; ++d) {
+							int[] ndt_d = getDocumentTopicCounts(d, row);
+							double denominator = ndsum[d] + tAlpha;
+							for (int t = 0; t < param.T; ++t) {
+								thetasum.add(d, t, (ndt_d[t] + param.alpha)
+										/ denominator);
+							}
+						}
+					}
+				});
+
+		final double[] denominators = getTopicWordDenominators();
+		ParallelRanges.run(param.V, param.numberOfPosteriorThreads,
+				new ParallelRanges.RangeTask() {
+					@Override
+					public void compute(int start, int end) {
+						for (int w = start; w < end; ++w) {
+							int[] nwt_w = nwt[w];
+							for (int t = 0; t < param.T; ++t) {
+								phisum.add(t, w, (nwt_w[t] + param.beta)
+										/ denominators[t]);
+							}
+						}
+					}
+				});
+		++numstats;
+	}
+
+	/**
+	 * Get the topic counts of document d, expanded into the row buffer if the
+	 * sparse counts are used.
+	 */
+	private int[] getDocumentTopicCounts(int d, int[] row) {
+		if (sparseNdt == null) {
+			return ndt[d];
 		}
+		sparseNdt.expand(d, row);
+		return row;
+	}
 
+	/**
+	 * Get the denominator of phi[t][] given current Markov status for each
+	 * topic t.
+	 */
+	private double[] getTopicWordDenominators() {
+		double[] denominators = new double[param.T];
 		for (int t = 0; t < param.T; ++t) {
-			for (int w = 0; w < param.V; ++w) {
-				phisum[t][w] += (ntw[t][w] + param.beta) / (ntsum[t] + vBeta);
-			}
+			denominators[t] = ntsum[t] + vBeta;
 		}
-		++numstats;
+		return denominators;
 	}
 
 	/**
@@ -227,51 +366,79 @@ public class LDA extends TopicModel {
 	}
 
 	/**
-	 * Document-topic distribution: theta[][].
+	 * Document-topic distribution: theta[][]. With sparse document-topic
+	 * counts, theta[][] is not kept, see getDocumentTopicDistribution().
 	 */
 	private void computeDocumentTopicDistribution() {
-		if (param.sampleLag > 0) {
-			for (int d = 0; d < param.D; ++d) {
-				for (int t = 0; t < param.T; ++t) {
-					theta[d][t] = thetasum[d][t] / numstats;
-				}
-			}
-		} else {
-			for (int d = 0; d < param.D; ++d) {
-				for (int t = 0; t < param.T; ++t) {
-					theta[d][t] = (ndt[d][t] + param.alpha)
-							/ (ndsum[d] + tAlpha);
-				}
-			}
+		if (theta == null) {
+			return;
 		}
+		ParallelRanges.run(param.D, param.numberOfPosteriorThreads,
+				new ParallelRanges.RangeTask() {
+					@Override
+					public void compute(int start, int end) {
+						for (int d = start; d < end; ++d) {
+							computeDocumentTopicDistribution(d, theta[d]);
+						}
+					}
+				});
 	}
 
 	/**
-	 * Topic-word distribution: phi[][].
+	 * Compute theta[d][] into the array dist.
 	 */
-	private void computeTopicWordDistribution() {
+	private void computeDocumentTopicDistribution(int d, double[] dist) {
 		if (param.sampleLag > 0) {
 			for (int t = 0; t < param.T; ++t) {
-				for (int w = 0; w < param.V; ++w) {
-					phi[t][w] = phisum[t][w] / numstats;
-				}
+				dist[t] = thetasum.get(d, t) / numstats;
 			}
 		} else {
+			double denominator = ndsum[d] + tAlpha;
 			for (int t = 0; t < param.T; ++t) {
-				for (int w = 0; w < param.V; ++w) {
-					phi[t][w] = (ntw[t][w] + param.beta) / (ntsum[t] + vBeta);
-				}
+				int count = sparseNdt == null ? ndt[d][t] : sparseNdt.get(d, t);
+				dist[t] = (count + param.alpha) / denominator;
 			}
 		}
 	}
 
+	/**
+	 * Topic-word distribution: phi[][].
+	 */
+	private void computeTopicWordDistribution() {
+		final boolean fromSums = param.sampleLag > 0;
+		final double[] denominators = getTopicWordDenominators();
+		ParallelRanges.run(param.V, param.numberOfPosteriorThreads,
+				new ParallelRanges.RangeTask() {
+					@Override
+					public void compute(int start, int end) {
+						for (int w = start; w < end; ++w) {
+							int[] nwt_w = nwt[w];
+							for (int t = 0; t < param.T; ++t) {
+								phi[t][w] = fromSums ? phisum.get(t, w)
+										/ numstats : (nwt_w[t] + param.beta)
+										/ denominators[t];
+							}
+						}
+					}
+				});
+	}
+
 	@Override
 	public double[][] getTopicWordDistribution() {
 		return phi;
 	}
 
+	/**
+	 * Get theta[d][], which is computed here from the sparse document-topic
+	 * counts if they are used.
+	 */
 	@Override
-	public double[][] getDocumentTopicDistrbution() {
-		return theta;
+	public double[] getDocumentTopicDistribution(int d) {
+		if (theta != null) {
+			return theta[d];
+		}
+		double[] dist = new double[param.T];
+		computeDocumentTopicDistribution(d, dist);
+		return dist;
 	}
 }
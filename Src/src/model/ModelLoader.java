@@ -29,6 +29,11 @@ public class ModelLoader {
 				return new LDA(corpus, param, z, twdist);
 			} else if (modelName.equals("AMC")) {
 				return new AMC(corpus, param, z, twdist);
+			} else if (modelName.equals("StreamingLDA")) {
+				double[][] twcounts = loadTwoDimentionalDistribution(modelDirectory
+						+ File.separator + domain
+						+ ModelPrinter.topicWordCountsSuffix);
+				return new StreamingLDA(corpus, param, z, twdist, twcounts);
 			} else {
 				ExceptionUtility
 						.throwAndCatchException("The model name is not recognizable!");
@@ -2,7 +2,13 @@ package model;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
+import knowledge.KnowledgeStore;
 import utility.ExceptionUtility;
 import utility.FileReaderAndWriter;
 import global.CmdOption;
@@ -42,6 +48,25 @@ public class ModelParameters {
 
 	// Random seed.
 	public int randomSeed = 0;
+	// The algorithm of the random number generator (see
+	// RandomNumberGenerators).
+	public String randomGeneratorName = "Random";
+
+	// The number of document partitions of the domain sampled in parallel.
+	// Only AMC supports more than one partition.
+	public int numberOfSamplerThreads = 1;
+	// The number of threads computing the posterior distributions.
+	public int numberOfPosteriorThreads = 1;
+	// Store thetasum and phisum as floats (see PosteriorSums).
+	public boolean useFloatPosteriorSums = false;
+	// The storage of the document-topic counts of LDA: dense, sparse or auto
+	// (see SparseDocumentTopicCounts).
+	public String documentTopicStorage = "auto";
+	// Store the topic-word counts of AMC as floats (see TopicWordCounts).
+	public boolean useFloatTopicWordCounts = false;
+	// Compute the topic probabilities of a token with the Vector API (see
+	// TopicProbabilityKernel).
+	public boolean useVectorizedKernel = false;
 
 	// ------------------------------------------------------------------------
 	// Output
@@ -52,8 +77,13 @@ public class ModelParameters {
 	// ------------------------------------------------------------------------
 	// Knowledge
 	// ------------------------------------------------------------------------
-	public ArrayList<TopicModel> topicModelList_LDA_SameSetting;
-	public ArrayList<TopicModel> topicModelList_LDA_KnowledgeFrom;
+	// The summaries of the LDA models of the same setting (with z[][]) and of
+	// the models the knowledge is extracted from (with the top words).
+	public ArrayList<TopicModelSummary> topicModelList_LDA_SameSetting;
+	public ArrayList<TopicModelSummary> topicModelList_LDA_KnowledgeFrom;
+	// The knowledge store shared by the runs of the program (null if not
+	// used).
+	public KnowledgeStore knowledgeStore = null;
 
 	// ------------------------------------------------------------------------
 	// Parameters specific to AMC (KDD 2014).
@@ -83,6 +113,34 @@ public class ModelParameters {
 	public int supportThresholdForCannotLink = 10; // Parameter \pi_diff in the
 													// paper.
 
+	// ------------------------------------------------------------------------
+	// Parameters specific to streaming LDA.
+	// ------------------------------------------------------------------------
+	// The factor multiplying the topic-word counts of the old documents
+	// before each mini-batch.
+	public double streamingDecay = 1.0;
+	// The number of mini-batches sampled so far.
+	public int noofStreamingBatches = 0;
+
+	// The fields that are printed only for the models using them (or for any
+	// model if null) and only if they are not the default values, so the
+	// parameter files of the runs not using them stay the same.
+	private static final Map<String, List<String>> OPTIONAL_FIELDS = new HashMap<String, List<String>>();
+	static {
+		OPTIONAL_FIELDS.put("randomGeneratorName", null);
+		OPTIONAL_FIELDS.put("numberOfSamplerThreads", Arrays.asList("AMC"));
+		OPTIONAL_FIELDS.put("numberOfPosteriorThreads",
+				Arrays.asList("LDA", "AMC"));
+		OPTIONAL_FIELDS.put("useFloatPosteriorSums",
+				Arrays.asList("LDA", "AMC"));
+		OPTIONAL_FIELDS.put("documentTopicStorage", Arrays.asList("LDA"));
+		OPTIONAL_FIELDS.put("useFloatTopicWordCounts", Arrays.asList("AMC"));
+		OPTIONAL_FIELDS.put("useVectorizedKernel", null);
+		OPTIONAL_FIELDS.put("streamingDecay", Arrays.asList("StreamingLDA"));
+		OPTIONAL_FIELDS.put("noofStreamingBatches",
+				Arrays.asList("StreamingLDA"));
+	}
+
 	public ModelParameters() {
 
 	}
@@ -102,6 +160,14 @@ public class ModelParameters {
 		beta = cmdOption.beta;
 
 		randomSeed = cmdOption.randomSeed;
+		randomGeneratorName = cmdOption.randomGeneratorName;
+
+		numberOfSamplerThreads = cmdOption.nSamplerThreads;
+		numberOfPosteriorThreads = cmdOption.nPosteriorThreads;
+		useFloatPosteriorSums = cmdOption.useFloatPosteriorSums;
+		documentTopicStorage = cmdOption.documentTopicStorage;
+		useFloatTopicWordCounts = cmdOption.useFloatTopicWordCounts;
+		useVectorizedKernel = cmdOption.useVectorizedKernel;
 
 		twords = cmdOption.twords;
 	}
@@ -165,8 +231,19 @@ public class ModelParameters {
 	public void printToFile(String filePath) {
 		try {
 			StringBuilder sbOutput = new StringBuilder();
+			ModelParameters defaultParam = new ModelParameters();
 			// Output each member of settings.
 			for (Field field : this.getClass().getDeclaredFields()) {
+				if (OPTIONAL_FIELDS.containsKey(field.getName())) {
+					List<String> modelNames = OPTIONAL_FIELDS.get(field
+							.getName());
+					if (modelNames != null && !modelNames.contains(modelName)
+							|| Objects.equals(field.get(this),
+									field.get(defaultParam))) {
+						// Not printed, so it is read as the default value.
+						continue;
+					}
+				}
 				String typestr = field.getType().toString().toLowerCase();
 				if (typestr.endsWith("string") || typestr.endsWith("int")
 						|| typestr.endsWith("double")
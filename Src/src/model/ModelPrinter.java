@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import utility.FileOneByOneLineWriter;
 import utility.FileReaderAndWriter;
 import utility.ItemWithValue;
+import metrics.ModelPrintingEvent;
 import nlp.Corpus;
 import nlp.Vocabulary;
 
@@ -32,6 +33,8 @@ public class ModelPrinter {
 	public static final String documentTopicDistSuff = ".dtopicdist";
 	// Suffix for topic word distribution.
 	public static final String topicWordDistSuff = ".twdist";
+	// Suffix for topic word counts (for streaming models only).
+	public static final String topicWordCountsSuffix = ".twcounts";
 	// Suffix for file containing top words per topic.
 	public static String twordsSuffix = ".twords";
 	// Suffix for file containing the documents in the corpus.
@@ -51,13 +54,16 @@ public class ModelPrinter {
 	 * Print the model.
 	 */
 	public void printModel(String outputDirectory) {
+		ModelPrintingEvent event = new ModelPrintingEvent();
+		event.begin();
 		try {
 			String domain = model.param.domain;
 			printModelParameters(model.param, outputDirectory + domain
 					+ modelParamSuffix);
 			printTopicWordAssignment(model.z, model.corpus, outputDirectory
 					+ domain + tassignSuffix);
-			printDocumentTopicDistribution(model.getDocumentTopicDistrbution(), outputDirectory + domain + documentTopicDistSuff);
+			printDocumentTopicDistribution(model, outputDirectory + domain
+					+ documentTopicDistSuff);
 			printTopicWordDistribution(model.getTopicWordDistribution(),
 					outputDirectory + domain + topicWordDistSuff);
 			ArrayList<ArrayList<ItemWithValue>> topWordsUnderTopics = model
@@ -70,11 +76,20 @@ public class ModelPrinter {
 
 			// For knowledge-based topic models only.
 			model.printKnowledge(outputDirectory + domain + knowledgeSuffix);
+			// For streaming topic models only.
+			model.printSufficientStatistics(outputDirectory + domain
+					+ topicWordCountsSuffix);
 		} catch (Exception ex) {
 			System.out.println("Error while printing the topic model: "
 					+ ex.getMessage());
 			ex.printStackTrace();
 		}
+		if (event.shouldCommit()) {
+			event.modelName = model.param.modelName;
+			event.domain = model.param.domain;
+			event.directory = outputDirectory;
+			event.commit();
+		}
 	}
 
 	private void printModelParameters(ModelParameters param, String filePath) {
@@ -93,17 +108,40 @@ public class ModelPrinter {
 			int N = z[d].length;
 			for (int n = 0; n < N; ++n) {
 				sbLine.append(corpus.vocab
-						.getWordstrByWordid(corpus.docs[d][n])
-						+ ":"
-						+ z[d][n]
-						+ " ");
+						.getWordstrByWordid(corpus.docs[d][n]));
+				sbLine.append(':');
+				sbLine.append(z[d][n]);
+				sbLine.append(' ');
+			}
+			writer.writeLine(sbLine.toString().trim());
+		}
+		writer.close();
+	}
+
+	/**
+	 * Print the document-topic distribution of the model one document at a
+	 * time, so that a model keeping it sparsely (e.g., LDA with sparse
+	 * document-topic counts) does not build the whole D * T array.
+	 */
+	private static void printDocumentTopicDistribution(TopicModel model,
+			String filePath) {
+		FileOneByOneLineWriter writer = new FileOneByOneLineWriter(filePath);
+
+		int D = model.param.D;
+		for (int d = 0; d < D; ++d) {
+			double[] dist = model.getDocumentTopicDistribution(d);
+			StringBuilder sbLine = new StringBuilder();
+			for (int t = 0; t < dist.length; ++t) {
+				sbLine.append(dist[t]);
+				sbLine.append(' ');
 			}
 			writer.writeLine(sbLine.toString().trim());
 		}
 		writer.close();
 	}
 
-	private void printDocumentTopicDistribution(double[][] dist, String filePath) {
+	public static void printDocumentTopicDistribution(double[][] dist,
+			String filePath) {
 		assert (dist != null && dist.length != 0 && dist[0].length != 0) : "The document topic distribution is not correct!";
 
 		FileOneByOneLineWriter writer = new FileOneByOneLineWriter(filePath);
@@ -113,14 +151,16 @@ public class ModelPrinter {
 			StringBuilder sbLine = new StringBuilder();
 			int T = dist[d].length;
 			for (int t = 0; t < T; ++t) {
-				sbLine.append(dist[d][t] + " ");
+				sbLine.append(dist[d][t]);
+				sbLine.append(' ');
 			}
 			writer.writeLine(sbLine.toString().trim());
 		}
 		writer.close();
 	}
 	
-	private void printTopicWordDistribution(double[][] dist, String filePath) {
+	public static void printTopicWordDistribution(double[][] dist,
+			String filePath) {
 		assert (dist != null && dist.length != 0 && dist[0].length != 0) : "The topic word distribution is not correct!";
 
 		FileOneByOneLineWriter writer = new FileOneByOneLineWriter(filePath);
@@ -130,7 +170,8 @@ public class ModelPrinter {
 			StringBuilder sbLine = new StringBuilder();
 			int V = dist[t].length;
 			for (int w = 0; w < V; ++w) {
-				sbLine.append(dist[t][w] + " ");
+				sbLine.append(dist[t][w]);
+				sbLine.append(' ');
 			}
 			writer.writeLine(sbLine.toString().trim());
 		}
@@ -169,7 +210,8 @@ public class ModelPrinter {
 		for (int[] doc : docs) {
 			StringBuilder sbLine = new StringBuilder();
 			for (int word : doc) {
-				sbLine.append(word + " ");
+				sbLine.append(word);
+				sbLine.append(' ');
 			}
 			sbOutput.append(sbLine.toString().trim());
 			sbOutput.append(System.getProperty("line.separator"));
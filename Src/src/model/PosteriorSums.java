@@ -0,0 +1,39 @@
+package model;
+
+/**
+ * The cumulative posterior distribution (e.g., thetasum or phisum) summed
+ * over the samples of the Markov chain, stored either as doubles or as floats.
+ * The floats halve the memory of the sums and the memory traffic of adding a
+ * sample, at the cost of about 7 significant digits.
+ */
+public class PosteriorSums {
+	private double[][] sums = null;
+	private float[][] floatSums = null;
+
+	public PosteriorSums(int rows, int columns, boolean useFloat) {
+		if (useFloat) {
+			floatSums = new float[rows][columns];
+		} else {
+			sums = new double[rows][columns];
+		}
+	}
+
+	public boolean isFloat() {
+		return floatSums != null;
+	}
+
+	public void add(int row, int column, double value) {
+		if (floatSums != null) {
+			floatSums[row][column] += value;
+		} else {
+			sums[row][column] += value;
+		}
+	}
+
+	public double get(int row, int column) {
+		if (floatSums != null) {
+			return floatSums[row][column];
+		}
+		return sums[row][column];
+	}
+}
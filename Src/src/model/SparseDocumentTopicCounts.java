@@ -0,0 +1,93 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The counts of the topics in each document, keeping only the topics that
+ * appear in the document as (topic, count) pairs sorted by topic. A document
+ * of N tokens has at most min(N, T) topics, so the pairs of each document are
+ * allocated once with this capacity, and the counts of short documents (e.g.,
+ * reviews with fewer words than topics) take O(#tokens) memory instead of
+ * O(D * T). The sums of the document-topic distributions of LDA (-slag > 0)
+ * are still D * T, see PosteriorSums.
+ *
+ * The sampler expands the counts of a document into a dense row before
+ * sampling its tokens and compresses the row back afterwards (see expand() and
+ * compress()), so the topic probabilities are computed exactly as with dense
+ * counts.
+ */
+public class SparseDocumentTopicCounts {
+	private int T = 0;
+	// topics[d][i], counts[d][i]: the i-th topic of document d and its count,
+	// for i < sizes[d].
+	private int[][] topics = null;
+	private int[][] counts = null;
+	private int[] sizes = null;
+
+	public SparseDocumentTopicCounts(int[][] docs, int T2) {
+		T = T2;
+		int D = docs.length;
+		topics = new int[D][];
+		counts = new int[D][];
+		sizes = new int[D];
+		for (int d = 0; d < D; ++d) {
+			int capacity = Math.min(docs[d].length, T);
+			topics[d] = new int[capacity];
+			counts[d] = new int[capacity];
+		}
+	}
+
+	/**
+	 * Write the counts of document d into the dense row (size T).
+	 */
+	public void expand(int d, int[] row) {
+		Arrays.fill(row, 0, T, 0);
+		int[] topics_d = topics[d];
+		int[] counts_d = counts[d];
+		for (int i = 0; i < sizes[d]; ++i) {
+			row[topics_d[i]] = counts_d[i];
+		}
+	}
+
+	/**
+	 * Set the counts of document d from the dense row (size T). The counts
+	 * must sum up to at most the length of the document.
+	 */
+	public void compress(int d, int[] row) {
+		int[] topics_d = topics[d];
+		int[] counts_d = counts[d];
+		int size = 0;
+		for (int t = 0; t < T; ++t) {
+			if (row[t] != 0) {
+				topics_d[size] = t;
+				counts_d[size] = row[t];
+				++size;
+			}
+		}
+		sizes[d] = size;
+	}
+
+	/**
+	 * Get the count of topic t in document d.
+	 */
+	public int get(int d, int t) {
+		int i = Arrays.binarySearch(topics[d], 0, sizes[d], t);
+		return i >= 0 ? counts[d][i] : 0;
+	}
+
+	/**
+	 * Check if the documents are short enough on average, compared with the
+	 * number of topics, to store their topic counts sparsely: fewer than
+	 * 1 / ratio as many tokens as topics.
+	 */
+	public static boolean isSparseEnough(int[][] docs, int T, int ratio) {
+		if (docs.length == 0) {
+			return false;
+		}
+		long noofTokens = 0;
+		for (int[] doc : docs) {
+			noofTokens += doc.length;
+		}
+		return noofTokens * ratio < (long) docs.length * T;
+	}
+}
@@ -0,0 +1,348 @@
+package model;
+
+import java.util.Arrays;
+
+import metrics.GibbsSweepEvent;
+import metrics.ModelMetrics;
+import nlp.Corpus;
+import nlp.Vocabulary;
+import utility.ArrayAllocationAndInitialization;
+import utility.CountMatrices;
+import utility.CountMatrix;
+import utility.InverseTransformSampler;
+import utility.RandomNumberGenerators;
+import utility.TopicProbabilityKernel;
+
+/**
+ * This implements LDA trained on a stream of mini-batches of documents of a
+ * domain (streaming Gibbs sampling with decaying sufficient statistics), so
+ * that new documents (e.g., the reviews of a day) update the topics without
+ * revisiting the old documents.
+ *
+ * For each mini-batch:
+ *
+ * 1. The words not in the vocabulary of the model are added to it.
+ *
+ * 2. The topic-word counts of the old documents are multiplied by the decay
+ * factor (param.streamingDecay), so that the topics follow the recent
+ * documents.
+ *
+ * 3. The documents of the mini-batch are sampled for a certain number of Gibbs
+ * sampling sweeps against the (real-valued) topic-word counts, and their
+ * counts are kept in the model afterwards.
+ *
+ * After each mini-batch, the corpus, z[][] and theta[][] of the model are the
+ * ones of the last mini-batch, and phi[][] is computed from the counts of all
+ * mini-batches. The counts are printed into domain.twcounts by ModelPrinter,
+ * so a model loaded by ModelLoader continues from where it stopped. Since the
+ * model has the vocabulary of all mini-batches, it can also be used as the
+ * knowledge of AMC (topicModelList_LDA_KnowledgeFrom) to refresh the knowledge
+ * from the updated topics.
+ */
+public class StreamingLDA extends TopicModel {
+	/******************* Hyperparameters *********************/
+	// The hyperparameter for the document-topic distribution.
+	// alpha is in the variable param in TopicModel.
+	private double tAlpha = 0;
+	// The hyperparameter for the topic-word distribution.
+	// beta is in the variable param in TopicModel.
+	private double vBeta = 0;
+
+	// The vocabulary of all mini-batches.
+	private Vocabulary vocab = null;
+
+	/******************* Posterior distributions *********************/
+	private double[][] theta = null; // Document-topic distribution of the last
+										// mini-batch, size D * T.
+	private double[][] phi = null; // Topic-word distribution, size T * V.
+
+	/******************* Sufficient statistics *********************/
+	// nwt[w][t]: the decayed counts of word w appearing under topic t. The
+	// array may be larger than the vocabulary to leave room for new words.
+	private double[][] nwt = null;
+	// nwt[][] read by the kernel.
+	private CountMatrix nwtMatrix = null;
+	// ntsum[t]: the decayed counts of any word appearing under topic t.
+	private double[] ntsum = null;
+
+	/******************* Temp variables while sampling *********************/
+	// z is defined in the superclass TopicModel.
+	// ndt[d][t]: the counts of document d of the mini-batch having topic t.
+	private int[][] ndt = null;
+	// ndsum[d]: the counts of document d of the mini-batch having any topic.
+	private int[] ndsum = null;
+	// The buffer of the cumulative topic probabilities of a token.
+	private double[] p = null;
+	// The kernel computing the topic probabilities of a token, created for
+	// each mini-batch since V grows.
+	private TopicProbabilityKernel kernel = null;
+
+	/**
+	 * Create a new model without any documents. The corpus (its domain only)
+	 * is the first mini-batch, which is sampled by run().
+	 */
+	public StreamingLDA(Corpus corpus2, ModelParameters param2) {
+		super(corpus2, param2);
+		vocab = new Vocabulary();
+		nwt = new double[0][];
+		ntsum = new double[param.T];
+		p = new double[param.T];
+		param.V = 0;
+	}
+
+	/**
+	 * Create a model that continues from the topic-word counts twcounts (size
+	 * T * V) of the printed model. The corpus and z[][] are the ones of the
+	 * last mini-batch.
+	 */
+	public StreamingLDA(Corpus corpus2, ModelParameters param2, int[][] z2,
+			double[][] twdist, double[][] twcounts) {
+		super(corpus2, param2);
+		vocab = corpus.vocab;
+		nwt = ArrayAllocationAndInitialization.allocateAndInitialize(nwt,
+				param.V, param.T);
+		for (int t = 0; t < param.T; ++t) {
+			for (int w = 0; w < param.V; ++w) {
+				nwt[w][t] = twcounts[t][w];
+			}
+		}
+		sumTopicCounts();
+		p = new double[param.T];
+		z = z2;
+		phi = twdist;
+	}
+
+	/**
+	 * Sample the corpus given to the constructor as a mini-batch.
+	 */
+	@Override
+	public void run() {
+		update(corpus);
+	}
+
+	/**
+	 * Update the model with a mini-batch of documents. The word ids of the
+	 * mini-batch are in its own vocabulary.
+	 */
+	public void update(Corpus batch) {
+		int D = batch.docs.length;
+		if (D == 0) {
+			return;
+		}
+
+		// 1. Add the new words and convert the mini-batch into the word ids of
+		// the model.
+		Corpus batchOfModel = new Corpus(batch.domain);
+		batchOfModel.vocab = vocab;
+		batchOfModel.docs = new int[D][];
+		for (int d = 0; d < D; ++d) {
+			int N = batch.docs[d].length;
+			batchOfModel.docs[d] = new int[N];
+			for (int n = 0; n < N; ++n) {
+				String wordstr = batch.vocab.getWordstrByWordid(batch.docs[d][n]);
+				if (!vocab.containsWordstr(wordstr)) {
+					vocab.addWordstrWithoutWordid(wordstr);
+				}
+				batchOfModel.docs[d][n] = vocab.getWordidByWordstr(wordstr);
+			}
+		}
+		corpus = batchOfModel;
+		docs = corpus.docs;
+		param.D = D;
+		param.V = vocab.size();
+		tAlpha = param.T * param.alpha;
+		vBeta = param.V * param.beta;
+		ensureCapacityOfVocabulary(param.V);
+
+		// 2. Decay the counts of the old documents.
+		double decay = param.streamingDecay;
+		for (int w = 0; w < param.V; ++w) {
+			for (int t = 0; t < param.T; ++t) {
+				nwt[w][t] *= decay;
+			}
+		}
+		for (int t = 0; t < param.T; ++t) {
+			ntsum[t] *= decay;
+		}
+		kernel = new TopicProbabilityKernel(param.T, param.alpha, param.beta,
+				vBeta, param.useVectorizedKernel);
+		kernel.setTopicCounts(ntsum);
+
+		// 3. Sample the mini-batch. Each mini-batch has its own random number
+		// generator, so a model loaded from the disk samples the next
+		// mini-batch in the same way as the model that printed it.
+		randomGenerator = RandomNumberGenerators.create(
+				param.randomGeneratorName, param.randomSeed + 1000003L
+						* param.noofStreamingBatches);
+		initializeFirstMarkovChainRandomly();
+		runGibbsSampling();
+		++param.noofStreamingBatches;
+		// Sum the counts again in the order of words as a model loaded from
+		// the disk does, so that it continues with exactly the same counts.
+		sumTopicCounts();
+
+		long startTime = System.nanoTime();
+		computePosteriorDistribution();
+		metrics.addPhaseTime(ModelMetrics.POSTERIOR, System.nanoTime()
+				- startTime);
+	}
+
+	/**
+	 * Make room for the counts of V words, growing the array geometrically so
+	 * that adding a few words per mini-batch does not copy it every time.
+	 */
+	private void ensureCapacityOfVocabulary(int V) {
+		if (nwt.length < V) {
+			int oldCapacity = nwt.length;
+			nwt = Arrays.copyOf(nwt, Math.max(V, oldCapacity * 3 / 2 + 1));
+			for (int w = oldCapacity; w < nwt.length; ++w) {
+				nwt[w] = new double[param.T];
+			}
+		}
+		nwtMatrix = CountMatrices.of(nwt);
+	}
+
+	/**
+	 * Compute ntsum[] from nwt[][].
+	 */
+	private void sumTopicCounts() {
+		ntsum = new double[param.T];
+		for (int w = 0; w < param.V; ++w) {
+			for (int t = 0; t < param.T; ++t) {
+				ntsum[t] += nwt[w][t];
+			}
+		}
+	}
+
+	/**
+	 * Initialize the topics of the mini-batch randomly and add their counts.
+	 */
+	private void initializeFirstMarkovChainRandomly() {
+		ndt = ArrayAllocationAndInitialization.allocateAndInitialize(ndt,
+				param.D, param.T);
+		ndsum = ArrayAllocationAndInitialization.allocateAndInitialize(ndsum,
+				param.D);
+		z = new int[param.D][];
+		for (int d = 0; d < param.D; ++d) {
+			int N = docs[d].length;
+			z[d] = new int[N];
+
+			for (int n = 0; n < N; ++n) {
+				int word = docs[d][n];
+				int topic = (int) Math.floor(randomGenerator.nextDouble()
+						* param.T);
+				z[d][n] = topic;
+
+				updateCount(d, topic, word, +1);
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Gibbs Sampler
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Run a certain number of Gibbs Sampling sweeps over the mini-batch.
+	 */
+	private void runGibbsSampling() {
+		long noofTokens = getNoofTokens();
+		for (int i = 0; i < param.nIterations; ++i) {
+			GibbsSweepEvent event = new GibbsSweepEvent();
+			event.begin();
+			long startTime = System.nanoTime();
+			for (int d = 0; d < param.D; ++d) {
+				int N = docs[d].length;
+				for (int n = 0; n < N; ++n) {
+					// Sample from p(z_i|z_-i, w)
+					sampleTopicAssignment(d, n);
+				}
+			}
+			metrics.addSweepTime(System.nanoTime() - startTime, noofTokens);
+			if (event.shouldCommit()) {
+				event.modelName = param.modelName;
+				event.domain = param.domain;
+				event.iteration = i;
+				event.noofTokens = noofTokens;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * Sample a topic assigned to the word in position n of document d.
+	 */
+	private void sampleTopicAssignment(int d, int n) {
+		int old_topic = z[d][n];
+		int word = docs[d][n];
+		updateCount(d, old_topic, word, -1);
+
+		kernel.computeCumulativeProbabilities(p, ndt[d], ndsum[d] + tAlpha,
+				nwtMatrix, word);
+		int new_topic = InverseTransformSampler.sampleFromCumulative(p,
+				param.T, randomGenerator.nextDouble());
+
+		z[d][n] = new_topic;
+		updateCount(d, new_topic, word, +1);
+	}
+
+	/**
+	 * Update the counts in the Gibbs sampler.
+	 */
+	private void updateCount(int d, int topic, int word, int flag) {
+		ndt[d][topic] += flag;
+		ndsum[d] += flag;
+		nwt[word][topic] += flag;
+		ntsum[topic] += flag;
+		kernel.setTopicCount(topic, ntsum[topic]);
+	}
+
+	// ------------------------------------------------------------------------
+	// Posterior Distribution Computation
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Compute theta[][] of the mini-batch and phi[][] from the last status of
+	 * the Markov chain.
+	 */
+	private void computePosteriorDistribution() {
+		theta = new double[param.D][param.T];
+		for (int d = 0; d < param.D; ++d) {
+			for (int t = 0; t < param.T; ++t) {
+				theta[d][t] = (ndt[d][t] + param.alpha) / (ndsum[d] + tAlpha);
+			}
+		}
+
+		phi = new double[param.T][param.V];
+		for (int t = 0; t < param.T; ++t) {
+			for (int w = 0; w < param.V; ++w) {
+				phi[t][w] = (nwt[w][t] + param.beta) / (ntsum[t] + vBeta);
+			}
+		}
+	}
+
+	@Override
+	public double[][] getTopicWordDistribution() {
+		return phi;
+	}
+
+	@Override
+	public double[] getDocumentTopicDistribution(int d) {
+		return theta[d];
+	}
+
+	/**
+	 * Print the decayed topic-word counts (size T * V, in the same format as
+	 * the topic-word distribution).
+	 */
+	@Override
+	public void printSufficientStatistics(String filepath) {
+		double[][] twcounts = new double[param.T][param.V];
+		for (int t = 0; t < param.T; ++t) {
+			for (int w = 0; w < param.V; ++w) {
+				twcounts[t][w] = nwt[w][t];
+			}
+		}
+		ModelPrinter.printTopicWordDistribution(twcounts, filepath);
+	}
+}
@@ -0,0 +1,284 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
+
+import nlp.Corpus;
+import nlp.Vocabulary;
+import utility.InverseTransformSampler;
+import utility.RandomNumberGenerators;
+
+/**
+ * Infer the document-topic distributions (theta) of new documents given a
+ * trained topic model (e.g., loaded by ModelLoader), without retraining it.
+ *
+ * The topic-word distribution (phi) of the model is fixed, so the documents
+ * are independent of each other: each document is sampled by its own Gibbs
+ * sampler where the topic of a token is drawn from
+ *
+ * p(z = t) ~ (ndt[t] + alpha) * phi[t][w],
+ *
+ * and theta is averaged over the sweeps after the burn-in period.
+ *
+ * The distribution is split into two buckets sampled by
+ * InverseTransformSampler.sampleFromBuckets(): ndt[t] * phi[t][w] over the
+ * topics of the document, which are few for short documents, and alpha *
+ * phi[t][w] over all topics, whose total is computed once for each word. So a
+ * token only visits all topics when the smoothing bucket is sampled.
+ *
+ * The random number generator of each document is split from the generator of
+ * the model parameters (randomSeed and randomGeneratorName) in the order of
+ * documents, so the result of a batch does not depend on the number of
+ * threads.
+ */
+public class TopicInferencer {
+	private Vocabulary vocab = null;
+	private int T = 0;
+	private double alpha = 0;
+	private double tAlpha = 0;
+	private String randomGeneratorName = null;
+	private int randomSeed = 0;
+	// phiOfWord[w][t] = phi[t][w]: the probabilities of a word are contiguous
+	// since sampling a token reads them for all topics.
+	private double[][] phiOfWord = null;
+	// phiSumOfWord[w] = sum_t phi[t][w].
+	private double[] phiSumOfWord = null;
+
+	// The number of Gibbs sampling sweeps of each document.
+	private int nIterations = 50;
+	// The number of sweeps before theta is averaged.
+	private int nBurnin = 20;
+
+	public TopicInferencer(TopicModel model, int nIterations2, int nBurnin2) {
+		vocab = model.corpus.vocab;
+		T = model.param.T;
+		alpha = model.param.alpha;
+		tAlpha = T * alpha;
+		randomGeneratorName = model.param.randomGeneratorName;
+		randomSeed = model.param.randomSeed;
+		nIterations = nIterations2;
+		nBurnin = Math.min(nBurnin2, nIterations - 1);
+
+		double[][] phi = model.getTopicWordDistribution();
+		int V = phi[0].length;
+		phiOfWord = new double[V][T];
+		for (int t = 0; t < T; ++t) {
+			for (int w = 0; w < V; ++w) {
+				phiOfWord[w][t] = phi[t][w];
+			}
+		}
+		phiSumOfWord = new double[V];
+		for (int w = 0; w < V; ++w) {
+			for (int t = 0; t < T; ++t) {
+				phiSumOfWord[w] += phiOfWord[w][t];
+			}
+		}
+	}
+
+	/**
+	 * Get the word ids of the words in the vocabulary of the model. The words
+	 * not in the vocabulary are dropped since they have no topic.
+	 */
+	public int[] getWordids(String[] wordstrs) {
+		int[] wordids = new int[wordstrs.length];
+		int length = 0;
+		for (String wordstr : wordstrs) {
+			if (vocab.containsWordstr(wordstr)) {
+				wordids[length++] = vocab.getWordidByWordstr(wordstr);
+			}
+		}
+		int[] doc = new int[length];
+		System.arraycopy(wordids, 0, doc, 0, length);
+		return doc;
+	}
+
+	/**
+	 * Infer theta of the documents (words), see inferDocumentTopicDistributions
+	 * (int[][], int).
+	 */
+	public double[][] inferDocumentTopicDistributions(String[][] docsStr,
+			int nthreads) {
+		int[][] docs = new int[docsStr.length][];
+		for (int d = 0; d < docsStr.length; ++d) {
+			docs[d] = getWordids(docsStr[d]);
+		}
+		return inferDocumentTopicDistributions(docs, nthreads);
+	}
+
+	/**
+	 * Infer theta of the documents of the corpus, whose word ids are converted
+	 * into the vocabulary of the model once for each word of its vocabulary
+	 * (-1 if the word is not in the vocabulary of the model).
+	 */
+	public double[][] inferDocumentTopicDistributions(Corpus corpus,
+			int nthreads) {
+		int[] wordidsOfModel = new int[corpus.vocab.size()];
+		for (int w = 0; w < wordidsOfModel.length; ++w) {
+			String wordstr = corpus.vocab.getWordstrByWordid(w);
+			wordidsOfModel[w] = vocab.containsWordstr(wordstr) ? vocab
+					.getWordidByWordstr(wordstr) : -1;
+		}
+		int[][] docs = new int[corpus.docs.length][];
+		for (int d = 0; d < docs.length; ++d) {
+			int[] doc = corpus.docs[d];
+			int[] wordids = new int[doc.length];
+			int length = 0;
+			for (int n = 0; n < doc.length; ++n) {
+				if (wordidsOfModel[doc[n]] >= 0) {
+					wordids[length++] = wordidsOfModel[doc[n]];
+				}
+			}
+			docs[d] = Arrays.copyOf(wordids, length);
+		}
+		return inferDocumentTopicDistributions(docs, nthreads);
+	}
+
+	/**
+	 * Infer theta of the documents (word ids in the vocabulary of the model)
+	 * with the given number of threads. Each thread samples a contiguous range
+	 * of documents.
+	 */
+	public double[][] inferDocumentTopicDistributions(final int[][] docs,
+			int nthreads) {
+		final int D = docs.length;
+		final double[][] theta = new double[D][];
+		final RandomGenerator[] randomGenerators = new RandomGenerator[D];
+		RandomGenerator randomGenerator = RandomNumberGenerators.create(
+				randomGeneratorName, randomSeed);
+		for (int d = 0; d < D; ++d) {
+			randomGenerators[d] = RandomNumberGenerators.split(
+					randomGenerator, randomGeneratorName);
+		}
+
+		int P = Math.max(Math.min(nthreads, D), 1);
+		if (P == 1) {
+			for (int d = 0; d < D; ++d) {
+				theta[d] = inferDocumentTopicDistribution(docs[d],
+						randomGenerators[d]);
+			}
+			return theta;
+		}
+
+		ArrayList<RecursiveAction> taskList = new ArrayList<RecursiveAction>();
+		for (int p = 0; p < P; ++p) {
+			final int firstDocument = (int) ((long) D * p / P);
+			final int endDocument = (int) ((long) D * (p + 1) / P);
+			taskList.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					for (int d = firstDocument; d < endDocument; ++d) {
+						theta[d] = inferDocumentTopicDistribution(docs[d],
+								randomGenerators[d]);
+					}
+				}
+			});
+		}
+		ForkJoinPool pool = new ForkJoinPool(P);
+		try {
+			for (RecursiveAction task : taskList) {
+				pool.execute(task);
+			}
+			for (RecursiveAction task : taskList) {
+				task.join();
+			}
+		} finally {
+			pool.shutdown();
+		}
+		return theta;
+	}
+
+	/**
+	 * Infer theta of a document (word ids in the vocabulary of the model).
+	 * theta of an empty document is uniform.
+	 */
+	public double[] inferDocumentTopicDistribution(int[] doc,
+			RandomGenerator randomGenerator) {
+		int N = doc.length;
+		int[] z = new int[N];
+		int[] ndt = new int[T];
+		double[] theta = new double[T];
+		// The topics t with ndt[t] > 0 (in any order) and the position of each
+		// topic in them (-1 if ndt[t] = 0).
+		int[] topicsOfDocument = new int[T];
+		int noofTopicsOfDocument = 0;
+		int[] positionOfTopic = new int[T];
+		Arrays.fill(positionOfTopic, -1);
+
+		// The buckets ndt[t] * phi[t][w] / alpha over the topics of the
+		// document and phi[t][w] over all topics, i.e., the distribution
+		// divided by alpha.
+		double[] documentBucket = new double[T];
+		double[][] buckets = new double[2][];
+		buckets[0] = documentBucket;
+		int[] bucketLengths = new int[2];
+		bucketLengths[1] = T;
+		double[] bucketMasses = new double[2];
+		int[] sample = new int[2];
+
+		// Initialize the first status of Markov chain randomly.
+		for (int n = 0; n < N; ++n) {
+			z[n] = (int) Math.floor(randomGenerator.nextDouble() * T);
+			if (ndt[z[n]]++ == 0) {
+				positionOfTopic[z[n]] = noofTopicsOfDocument;
+				topicsOfDocument[noofTopicsOfDocument++] = z[n];
+			}
+		}
+
+		int numstats = 0;
+		for (int i = 0; i < nIterations; ++i) {
+			for (int n = 0; n < N; ++n) {
+				int topic = z[n];
+				if (--ndt[topic] == 0) {
+					// Move the last topic of the document into its position.
+					int position = positionOfTopic[topic];
+					int lastTopic = topicsOfDocument[--noofTopicsOfDocument];
+					topicsOfDocument[position] = lastTopic;
+					positionOfTopic[lastTopic] = position;
+					positionOfTopic[topic] = -1;
+				}
+
+				int w = doc[n];
+				double[] phi_w = phiOfWord[w];
+				double documentMass = 0;
+				for (int k = 0; k < noofTopicsOfDocument; ++k) {
+					int t = topicsOfDocument[k];
+					documentBucket[k] = ndt[t] * phi_w[t] / alpha;
+					documentMass += documentBucket[k];
+				}
+				buckets[1] = phi_w;
+				bucketLengths[0] = noofTopicsOfDocument;
+				bucketMasses[0] = documentMass;
+				bucketMasses[1] = phiSumOfWord[w];
+				InverseTransformSampler.sampleFromBuckets(buckets,
+						bucketLengths, bucketMasses,
+						randomGenerator.nextDouble(), sample);
+				topic = sample[0] == 0 ? topicsOfDocument[sample[1]]
+						: sample[1];
+
+				z[n] = topic;
+				if (ndt[topic]++ == 0) {
+					positionOfTopic[topic] = noofTopicsOfDocument;
+					topicsOfDocument[noofTopicsOfDocument++] = topic;
+				}
+			}
+
+			if (i >= nBurnin) {
+				for (int t = 0; t < T; ++t) {
+					theta[t] += (ndt[t] + alpha) / (N + tAlpha);
+				}
+				++numstats;
+			}
+		}
+
+		for (int t = 0; t < T; ++t) {
+			theta[t] = numstats == 0 ? (ndt[t] + alpha) / (N + tAlpha)
+					: theta[t] / numstats;
+		}
+		return theta;
+	}
+}
@@ -1,15 +1,15 @@
 package model;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.PriorityQueue;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
+import metrics.ModelMetrics;
 import nlp.Corpus;
 import nlp.Topics;
 import utility.ExceptionUtility;
+import utility.RandomNumberGenerators;
 import utility.ItemWithValue;
+import utility.TopKSelector;
 
 /**
  * The superclass of all topic models. It contains all the basic parameter
@@ -21,22 +21,25 @@ public abstract class TopicModel {
 
 	public Corpus corpus = null; // The corpus of a domain.
 	public int[][] docs = null; // The word ids in each document of the corpus.
-	public String[][] docsStr = null; // The word strs in each document of the
-										// corpus.
 
 	// Topic assignments for each word in Gibbs sampler.
 	// We put z in the superclass as every topic model is supposed to have it.
 	protected int[][] z = null;
 
 	// Random number generator.
-	protected Random randomGenerator = null;
+	protected RandomGenerator randomGenerator = null;
+
+	// The timings and counts of running the model.
+	public ModelMetrics metrics = null;
 
 	protected TopicModel(Corpus corpus2, ModelParameters param2) {
 		corpus = corpus2;
 		docs = corpus.docs;
-		docsStr = corpus.docsStr;
 		param = param2;
-		randomGenerator = new Random(param.randomSeed);
+		randomGenerator = RandomNumberGenerators.create(
+				param.randomGeneratorName, param.randomSeed);
+		metrics = new ModelMetrics(param.modelName, param.domain,
+				param.outputModelDirectory);
 	}
 
 	// Run topic model.
@@ -45,8 +48,13 @@ public abstract class TopicModel {
 	// Get topic word distribution.
 	public abstract double[][] getTopicWordDistribution();
 
-	// Get document topic distribution.
-	public abstract double[][] getDocumentTopicDistrbution();
+	/**
+	 * Get the document-topic distribution of document d. The whole D * T
+	 * distribution is not exposed since a model may not keep it (e.g., LDA
+	 * with sparse document-topic counts), so it is printed one document at a
+	 * time (see ModelPrinter).
+	 */
+	public abstract double[] getDocumentTopicDistribution(int d);
 
 	public static TopicModel selectModel(Corpus corpus2, ModelParameters param2) {
 		String modelName = param2.modelName;
@@ -61,6 +69,17 @@ public abstract class TopicModel {
 		return null;
 	}
 
+	/**
+	 * Get the number of tokens in the corpus, i.e., sampled in each sweep.
+	 */
+	protected long getNoofTokens() {
+		long noofTokens = 0;
+		for (int[] doc : docs) {
+			noofTokens += doc.length;
+		}
+		return noofTokens;
+	}
+
 	/**
 	 * Return the list of top words and their original probabilities.
 	 */
@@ -77,19 +96,13 @@ public abstract class TopicModel {
 			twords = V;
 		}
 
+		int[][] topWordidsUnderTopics = TopKSelector.selectTopKOfEachRow(
+				topicWordDist, twords);
 		for (int t = 0; t < T; t++) {
-			ArrayList<ItemWithValue> wordsProbsList = new ArrayList<ItemWithValue>();
-			for (int w = 0; w < V; w++) {
-				ItemWithValue wwp = new ItemWithValue(w, topicWordDist[t][w]);
-				wordsProbsList.add(wwp);
-			}
-			Collections.sort(wordsProbsList);
-
 			ArrayList<ItemWithValue> topwordsProbsList = new ArrayList<ItemWithValue>();
-			for (int i = 0; i < twords; i++) {
-				int wordid = (Integer) wordsProbsList.get(i).getIterm();
+			for (int wordid : topWordidsUnderTopics[t]) {
 				String wordstr = corpus.vocab.getWordstrByWordid(wordid);
-				double prob = wordsProbsList.get(i).getValue();
+				double prob = topicWordDist[t][wordid];
 				ItemWithValue iwp = new ItemWithValue(wordstr, prob);
 				topwordsProbsList.add(iwp);
 			}
@@ -108,11 +121,11 @@ public abstract class TopicModel {
 	/**
 	 * Find the topic model of current domain.
 	 */
-	protected TopicModel findCurrentDomainTopicModel(
-			ArrayList<TopicModel> topicModelList_LastIteration) {
-		TopicModel topicmodel_currentDomain = null;
-		for (TopicModel topicmodel : topicModelList_LastIteration) {
-			if (topicmodel.corpus.domain.equals(corpus.domain)) {
+	protected TopicModelSummary findCurrentDomainTopicModel(
+			ArrayList<TopicModelSummary> topicModelList_LastIteration) {
+		TopicModelSummary topicmodel_currentDomain = null;
+		for (TopicModelSummary topicmodel : topicModelList_LastIteration) {
+			if (topicmodel.domain.equals(corpus.domain)) {
 				topicmodel_currentDomain = topicmodel;
 				break;
 			}
@@ -125,35 +138,12 @@ public abstract class TopicModel {
 	}
 
 	/**
-	 * Get the top words under each topic given the current status of the Markov
-	 * chain.
+	 * Get the top words (ids) under each topic given the current status of the
+	 * Markov chain, sorted by their probabilities descendingly.
 	 */
-	protected ArrayList<PriorityQueue<Integer>> getTopWordsUnderEachTopic(
-			double[][] topicWordDistribution) {
-		ArrayList<PriorityQueue<Integer>> topWordidList = new ArrayList<PriorityQueue<Integer>>();
-		int top_words = param.numberOfTopWordsUnderPriorTopicsForKnowledgeExtraction;
-
-		for (int t = 0; t < param.T; ++t) {
-			Comparator<Integer> comparator = new TopicalWordComparator(
-					topicWordDistribution[t]);
-			PriorityQueue<Integer> pqueue = new PriorityQueue<Integer>(
-					top_words, comparator);
-
-			for (int w = 0; w < param.V; ++w) {
-				if (pqueue.size() < top_words) {
-					pqueue.add(w);
-				} else {
-					if (topicWordDistribution[t][w] > topicWordDistribution[t][pqueue
-							.peek()]) {
-						pqueue.poll();
-						pqueue.add(w);
-					}
-				}
-			}
-
-			topWordidList.add(pqueue);
-		}
-		return topWordidList;
+	protected int[][] getTopWordsUnderEachTopic(double[][] topicWordDistribution) {
+		return TopKSelector.selectTopKOfEachRow(topicWordDistribution,
+				param.numberOfTopWordsUnderPriorTopicsForKnowledgeExtraction);
 	}
 
 	/**
@@ -165,4 +155,13 @@ public abstract class TopicModel {
 
 	}
 
+	/**
+	 * Print out the sufficient statistics needed to continue training the
+	 * model after loading it. For the models trained in a single run, this
+	 * function does nothing.
+	 */
+	public void printSufficientStatistics(String filepath) {
+
+	}
+
 }
@@ -0,0 +1,78 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import nlp.Topics;
+
+/**
+ * What AMC needs of an LDA model of a domain: the top words of its topics
+ * (for the knowledge extraction of the other domains) and its topic
+ * assignments z[][] (for initializing the Markov chain of the same domain).
+ *
+ * AMC runs with the summaries of the LDA models instead of the models, so the
+ * counts, the posterior distributions and the corpora of the LDA models are
+ * not kept alive during AMC.
+ */
+public class TopicModelSummary {
+	public String domain = null;
+	// The number of topics.
+	public int T = 0;
+	// The top words under each topic (null if not kept).
+	public Topics topics = null;
+	// The topic assignments (null if not kept).
+	public int[][] z = null;
+
+	/**
+	 * Summarize the model, keeping the top words under its topics and/or its
+	 * topic assignments. The top words are the ones used for the knowledge
+	 * extraction (see
+	 * ModelParameters.numberOfTopWordsUnderPriorTopicsForKnowledgeExtraction).
+	 */
+	public TopicModelSummary(TopicModel model, boolean keepTopics,
+			boolean keepZ) {
+		domain = model.corpus.domain;
+		T = model.param.T;
+		if (keepTopics) {
+			topics = model
+					.getTopics(model.param.numberOfTopWordsUnderPriorTopicsForKnowledgeExtraction);
+			if (model.corpus.globalVocabulary != null) {
+				// Set the global word ids once since the topics are shared by
+				// the models of all domains.
+				topics.setGlobalWordids(model.corpus.globalVocabulary);
+			}
+		}
+		if (keepZ) {
+			z = model.z;
+		}
+	}
+
+	/**
+	 * Summarize each model, sorted based on the domain name alphabetically.
+	 */
+	public static ArrayList<TopicModelSummary> summarize(
+			ArrayList<TopicModel> topicModelList, boolean keepTopics,
+			boolean keepZ) {
+		ArrayList<TopicModelSummary> summaryList = new ArrayList<TopicModelSummary>();
+		for (TopicModel topicModel : topicModelList) {
+			summaryList.add(new TopicModelSummary(topicModel, keepTopics,
+					keepZ));
+		}
+		sortByDomain(summaryList);
+		return summaryList;
+	}
+
+	/**
+	 * Sort the summaries based on the domain name alphabetically.
+	 */
+	public static void sortByDomain(ArrayList<TopicModelSummary> summaryList) {
+		Collections.sort(summaryList, new Comparator<TopicModelSummary>() {
+			@Override
+			public int compare(TopicModelSummary o1, TopicModelSummary o2) {
+				return o1.domain.toLowerCase().compareTo(
+						o2.domain.toLowerCase());
+			}
+		});
+	}
+}
@@ -0,0 +1,79 @@
+package model;
+
+import java.util.Arrays;
+
+import utility.CountMatrix;
+
+/**
+ * The (real-valued) topic-word counts nwt[w][t] of AMC, stored either as
+ * doubles or as floats. The counts of a word are contiguous since sampling a
+ * token reads them for all topics (see TopicProbabilityKernel).
+ *
+ * The floats halve the memory of the counts and the memory traffic of the
+ * sampler. The arithmetic is still done in doubles, and the counts are only
+ * rounded to floats when stored, i.e., to about 7 significant digits. AMC recomputes the counts periodically, so
+ * that the rounding errors of adding and removing the promotions do not
+ * accumulate (see AMC.recomputeTopicWordCounts()).
+ */
+public class TopicWordCounts implements CountMatrix {
+	private double[][] counts = null;
+	private float[][] floatCounts = null;
+
+	public TopicWordCounts(int V, int T, boolean useFloat) {
+		if (useFloat) {
+			floatCounts = new float[V][T];
+		} else {
+			counts = new double[V][T];
+		}
+	}
+
+	public double get(int w, int t) {
+		if (floatCounts != null) {
+			return floatCounts[w][t];
+		}
+		return counts[w][t];
+	}
+
+	@Override
+	public void copyRow(int w, double[] buffer) {
+		if (floatCounts != null) {
+			float[] floatCounts_w = floatCounts[w];
+			for (int t = 0; t < floatCounts_w.length; ++t) {
+				buffer[t] = floatCounts_w[t];
+			}
+		} else {
+			System.arraycopy(counts[w], 0, buffer, 0, counts[w].length);
+		}
+	}
+
+	public void set(int w, int t, double value) {
+		if (floatCounts != null) {
+			floatCounts[w][t] = (float) value;
+		} else {
+			counts[w][t] = value;
+		}
+	}
+
+	public void add(int w, int t, double value) {
+		if (floatCounts != null) {
+			floatCounts[w][t] += value;
+		} else {
+			counts[w][t] += value;
+		}
+	}
+
+	/**
+	 * Set all counts to 0.
+	 */
+	public void clear() {
+		if (floatCounts != null) {
+			for (float[] floatCounts_w : floatCounts) {
+				Arrays.fill(floatCounts_w, 0);
+			}
+		} else {
+			for (double[] counts_w : counts) {
+				Arrays.fill(counts_w, 0);
+			}
+		}
+	}
+}
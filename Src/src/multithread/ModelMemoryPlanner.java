@@ -0,0 +1,116 @@
+package multithread;
+
+import model.LDA;
+import model.ModelParameters;
+import model.TopicModelSummary;
+import nlp.Corpus;
+
+/**
+ * Estimate the heap memory that a topic model needs while it runs, before it
+ * is created, so that the thread pool only runs as many models at the same
+ * time as fit into a memory budget (see -membudget in CmdOption).
+ *
+ * The estimate covers the topic assignments, the counts of the Gibbs sampler
+ * (including the changes of the document partitions of AMC), the posterior
+ * distributions and their sums, the word-topic assignments of AMC and its
+ * knowledge. The sizes of the Java objects assume 64-bit references and
+ * 16-byte headers, and the knowledge is bounded by all pairs of the top words
+ * of the prior topics, so the estimate is rather an upper bound.
+ */
+public class ModelMemoryPlanner {
+	private static final long HEADER = 16;
+	private static final long REFERENCE = 8;
+	// A WordTopicAssignment object and its reference in the list.
+	private static final long WORD_TOPIC_ASSIGNMENT = 32 + REFERENCE;
+	// A WordTopicAssignments object with its (initially empty) ArrayList.
+	private static final long WORD_TOPIC_ASSIGNMENTS = HEADER + 24 + REFERENCE;
+	// A must-link or cannot-link with its word pair and the entries of the
+	// maps and graph indexing it.
+	private static final long LINK = 200;
+
+	/**
+	 * Estimate the memory (in bytes) of running the model of the parameters
+	 * on the corpus.
+	 */
+	public static long estimateMemory(Corpus corpus, ModelParameters param) {
+		long D = param.D;
+		long T = param.T;
+		long V = param.V;
+		long noofTokens = 0;
+		for (int[] doc : corpus.docs) {
+			noofTokens += doc.length;
+		}
+
+		// z[][].
+		long memory = getMatrixMemory(D, 0, 4) + noofTokens * 4;
+		// phi[][] and the sums of the posterior distributions.
+		memory += getMatrixMemory(T, V, 8);
+		int sumSize = param.useFloatPosteriorSums ? 4 : 8;
+		if (param.sampleLag > 0) {
+			memory += getMatrixMemory(D, T, sumSize)
+					+ getMatrixMemory(T, V, sumSize);
+		}
+
+		if ("AMC".equals(param.modelName)) {
+			int countSize = param.useFloatTopicWordCounts ? 4 : 8;
+			// theta[][], ndt[][], the topic-word counts of the model and the
+			// changes of them made by each document partition (in doubles, at
+			// most one row of each word and the indices of the changed words).
+			memory += getMatrixMemory(D, T, 8) + getMatrixMemory(D, T, 4);
+			memory += getMatrixMemory(V, T, countSize);
+			if (param.numberOfSamplerThreads > 1) {
+				memory += param.numberOfSamplerThreads
+						* (getMatrixMemory(V, T, 8) + 2 * HEADER + V * 5);
+			}
+			// wtaOfWordUnderTopic[][] and the index of the must-link sampled
+			// for each token.
+			memory += getMatrixMemory(T, V, REFERENCE) + T * V
+					* WORD_TOPIC_ASSIGNMENTS;
+			memory += Math.min(noofTokens, T * V)
+					* (HEADER + 10 * REFERENCE);
+			memory += noofTokens * WORD_TOPIC_ASSIGNMENT;
+			memory += getMatrixMemory(D, 0, 4) + noofTokens * 4;
+			memory += getKnowledgeMemory(param);
+		} else {
+			// ndt[][] (or its sparse counts, without theta[][]) and nwt[][].
+			if (LDA.useSparseDocumentTopicCounts(corpus.docs, param)) {
+				long noofPairs = 0;
+				for (int[] doc : corpus.docs) {
+					noofPairs += Math.min(doc.length, T);
+				}
+				memory += 2 * getMatrixMemory(D, 0, 4) + noofPairs * 8;
+			} else {
+				memory += getMatrixMemory(D, T, 8) + getMatrixMemory(D, T, 4);
+			}
+			memory += getMatrixMemory(V, T, 4);
+		}
+		return memory;
+	}
+
+	/**
+	 * Estimate the memory of the must-links and cannot-links of AMC by all
+	 * pairs of the top words of each prior topic and of each topic of the
+	 * model.
+	 */
+	private static long getKnowledgeMemory(ModelParameters param) {
+		long noofPriorTopics = 0;
+		if (param.topicModelList_LDA_KnowledgeFrom != null) {
+			for (TopicModelSummary summary : param.topicModelList_LDA_KnowledgeFrom) {
+				noofPriorTopics += summary.T;
+			}
+		}
+		long K = param.numberOfTopWordsUnderPriorTopicsForKnowledgeExtraction;
+		long noofPairsOfTopic = K * (K - 1) / 2;
+		return (noofPriorTopics + param.T) * noofPairsOfTopic * LINK;
+	}
+
+	/**
+	 * Get the memory of a matrix of rows * columns elements of elementSize
+	 * bytes.
+	 */
+	private static long getMatrixMemory(long rows, long columns,
+			long elementSize) {
+		return HEADER + rows
+				* (REFERENCE + HEADER + columns * elementSize);
+	}
+}
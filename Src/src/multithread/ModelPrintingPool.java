@@ -0,0 +1,84 @@
+package multithread;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import metrics.ModelMetrics;
+import model.ModelPrinter;
+import model.TopicModel;
+
+/**
+ * This implements the threads that print the topic models into the disk, so
+ * that the threads running the topic models move to the next domain without
+ * waiting for the printing.
+ * 
+ * At most queueCapacity models wait for printing. When the queue is full, the
+ * thread running the model prints it by itself, which bounds the memory held
+ * by the finished models. The memory budget of TopicModelMultiThreadPool
+ * counts a model until it is printed.
+ */
+public class ModelPrintingPool {
+	private ThreadPoolExecutor executor = null;
+	private ArrayList<TopicModelListener> listenerList = null;
+
+	/**
+	 * If numberOfThreads is 0, the models are printed by the threads running
+	 * them.
+	 */
+	public ModelPrintingPool(int numberOfThreads, int queueCapacity,
+			ArrayList<TopicModelListener> listenerList2) {
+		if (numberOfThreads > 0) {
+			executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads,
+					0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(Math.max(1, queueCapacity)),
+					new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		listenerList = listenerList2;
+	}
+
+	/**
+	 * Print the model into its output directory.
+	 */
+	public void printModel(final TopicModel model) {
+		Runnable printing = new Runnable() {
+			@Override
+			public void run() {
+				long startTime = System.nanoTime();
+				try {
+					ModelPrinter modelPrinter = new ModelPrinter(model);
+					modelPrinter.printModel(model.param.outputModelDirectory);
+				} finally {
+					// The listeners are notified even if the printing failed,
+					// so that the memory reserved for the model is released.
+					model.metrics.addPhaseTime(ModelMetrics.PRINTING,
+							System.nanoTime() - startTime);
+					for (TopicModelListener listener : listenerList) {
+						listener.modelPrinted(model);
+					}
+				}
+			}
+		};
+		if (executor == null) {
+			printing.run();
+		} else {
+			executor.execute(printing);
+		}
+	}
+
+	/**
+	 * Wait for all models to be printed.
+	 */
+	public void awaitTermination() {
+		if (executor == null) {
+			return;
+		}
+		try {
+			executor.shutdown();
+			executor.awaitTermination(60, TimeUnit.DAYS);
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+	}
+}
@@ -1,38 +1,60 @@
 package multithread;
 
+import java.util.ArrayList;
 import java.util.concurrent.Callable;
 
+import metrics.ModelMetrics;
 import nlp.Corpus;
 import model.ModelParameters;
-import model.ModelPrinter;
 import model.TopicModel;
 
 public class TopicModelCallable implements Callable<TopicModel> {
 	private ModelParameters param = null;
 	private Corpus corpus = null;
+	private ModelPrintingPool printingPool = null;
+	private ArrayList<TopicModelListener> listenerList = null;
 
-	public TopicModelCallable(Corpus corpus2, ModelParameters param2) {
+	public TopicModelCallable(Corpus corpus2, ModelParameters param2,
+			ModelPrintingPool printingPool2,
+			ArrayList<TopicModelListener> listenerList2) {
 		corpus = corpus2;
 		param = param2;
+		printingPool = printingPool2;
+		listenerList = listenerList2;
+	}
+
+	public String getDomain() {
+		return param.domain;
+	}
+
+	public ModelParameters getParam() {
+		return param;
 	}
 
 	@Override
 	/**
-	 * Run the topic model in a domain and print it into the disk.
+	 * Run the topic model in a domain and hand it to the printing pool which
+	 * prints it into the disk.
 	 */
 	public TopicModel call() throws Exception {
 		System.out.println("\"" + param.domain + "\" <" + param.modelName
 				+ "> Starts...");
 
+		// The resource usage includes creating the model, i.e., the knowledge
+		// extraction of AMC.
+		long[] startResourceUsage = ModelMetrics.getResourceUsage();
 		TopicModel model = TopicModel.selectModel(corpus, param);
 		model.run();
-
-		ModelPrinter modelPrinter = new ModelPrinter(model);
-		modelPrinter.printModel(param.outputModelDirectory);
+		model.metrics.addResourceUsageSince(startResourceUsage);
 
 		System.out.println("\"" + param.domain + "\" <" + param.modelName
 				+ "> Ends!");
 
+		for (TopicModelListener listener : listenerList) {
+			listener.modelFinished(model);
+		}
+		printingPool.printModel(model);
+
 		return model;
 	}
 }
@@ -0,0 +1,21 @@
+package multithread;
+
+import model.TopicModel;
+
+/**
+ * The callbacks of a topic model running in the thread pool. They are called
+ * from the threads of the pool, so the implementations should be thread-safe.
+ */
+public interface TopicModelListener {
+	/**
+	 * Called by the thread running the model once the model of a domain has
+	 * finished, before the model is printed.
+	 */
+	public void modelFinished(TopicModel model);
+
+	/**
+	 * Called by the printing thread once the model of a domain has been
+	 * printed into the disk (or its printing failed).
+	 */
+	public void modelPrinted(TopicModel model);
+}
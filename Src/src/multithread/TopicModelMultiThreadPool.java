@@ -1,11 +1,12 @@
 package multithread;
 
 import java.util.ArrayList;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 import nlp.Corpus;
 import model.ModelParameters;
@@ -14,44 +15,306 @@ import model.TopicModel;
 /**
  * This implements multithreading pool which is able to return a list of topic
  * models running in this learning iteration.
+ * 
+ * The tasks added are started by startTasks() (or awaitTermination()) on a
+ * work-stealing pool, the most expensive one first, so that a large domain
+ * does not end up as the last task running alone. When no domain is left in
+ * the queue, the idle threads help sampling the document partitions of the
+ * running domains (see -nsamplers in CmdOption).
+ * 
+ * If a memory budget is given, a task is only admitted (i.e., executed) when
+ * its estimated memory (see ModelMemoryPlanner) fits into the budget together
+ * with the tasks running and the finished models waiting for printing, and
+ * the others wait until enough of those models are printed. A task that does
+ * not fit into the budget even alone runs when no other model is running or
+ * waiting for printing.
+ * 
+ * The finished models are printed by the threads of a printing pool, and the
+ * listeners added are notified when the model of each domain finishes and when
+ * it is printed.
  */
 public class TopicModelMultiThreadPool {
 	private int numberOfThreads = 1;
-	private ExecutorService executor = null;
-	ArrayList<Future<TopicModel>> futureList = new ArrayList<Future<TopicModel>>();
+	private ForkJoinPool pool = null;
+	private ModelPrintingPool printingPool = null;
+	private ArrayList<TopicModelListener> listenerList = new ArrayList<TopicModelListener>();
+	// The tasks added but not started yet, with their estimated costs and the
+	// futures of their results.
+	private ArrayList<TopicModelCallable> pendingTaskList = new ArrayList<TopicModelCallable>();
+	private ArrayList<Double> pendingCostList = new ArrayList<Double>();
+	private ArrayList<Long> pendingMemoryList = new ArrayList<Long>();
+	private ArrayList<CompletableFuture<TopicModel>> pendingFutureList = new ArrayList<CompletableFuture<TopicModel>>();
+	// The memory budget of the running tasks in bytes (0: no budget), the
+	// memory estimated for (and the number of) the tasks admitted whose models
+	// are not printed yet, the memory reserved for each of them (by the
+	// parameters of its model) and the tasks started but not admitted yet,
+	// from the most expensive to the least one.
+	private long memoryBudget = 0;
+	private long memoryInUse = 0;
+	private int noofAdmittedTasks = 0;
+	private IdentityHashMap<ModelParameters, Long> reservedMemoryMap = new IdentityHashMap<ModelParameters, Long>();
+	private ArrayList<AdmissionRequest> admissionQueue = new ArrayList<AdmissionRequest>();
+	// The futures of all tasks added, in the order they were added.
+	private ArrayList<CompletableFuture<TopicModel>> futureList = new ArrayList<CompletableFuture<TopicModel>>();
 	// All topic models that run in this learning iteration.
 	public ArrayList<TopicModel> topicModelList = null;
+	// Whether the finished models are kept (in topicModelList) until all
+	// tasks finish.
+	private boolean retainingModels = true;
 
-	public TopicModelMultiThreadPool(int numberOfThreads2) {
+	/**
+	 * The models are printed by numberOfPrintingThreads threads, or by the
+	 * threads running the models if it is 0.
+	 */
+	public TopicModelMultiThreadPool(int numberOfThreads2,
+			int numberOfPrintingThreads) {
+		this(numberOfThreads2, numberOfPrintingThreads, 0);
+	}
+
+	/**
+	 * The models running at the same time take at most memoryBudget2 bytes as
+	 * estimated by ModelMemoryPlanner (no limit if it is 0).
+	 */
+	public TopicModelMultiThreadPool(int numberOfThreads2,
+			int numberOfPrintingThreads, long memoryBudget2) {
 		numberOfThreads = numberOfThreads2;
-		executor = Executors.newFixedThreadPool(numberOfThreads);
+		memoryBudget = memoryBudget2;
+		pool = new ForkJoinPool(numberOfThreads);
+		// Each thread running the models can have one model waiting for
+		// printing.
+		printingPool = new ModelPrintingPool(numberOfPrintingThreads,
+				numberOfThreads, listenerList);
 		topicModelList = new ArrayList<TopicModel>();
+		// Release the memory of a task once its model is printed.
+		listenerList.add(new TopicModelListener() {
+			@Override
+			public void modelFinished(TopicModel model) {
+			}
+
+			@Override
+			public void modelPrinted(TopicModel model) {
+				releaseMemory(model.param);
+			}
+		});
 	}
 
-	public void addTask(Corpus corpus, ModelParameters param) {
-		try {
-			Callable<TopicModel> callable = new TopicModelCallable(corpus,
-					param);
-			Future<TopicModel> future = executor.submit(callable);
+	/**
+	 * Add a listener notified when the model of each domain finishes and when
+	 * it is printed. It should be added before the tasks.
+	 */
+	public synchronized void addListener(TopicModelListener listener) {
+		listenerList.add(listener);
+	}
+
+	/**
+	 * Set whether the finished models are kept in topicModelList until all
+	 * tasks finish. If not, the pool does not refer to a model once it is
+	 * printed, so it can be garbage collected when the caller no longer needs
+	 * it. It should be set before the tasks are added.
+	 */
+	public synchronized void setRetainingModels(boolean retainingModels2) {
+		retainingModels = retainingModels2;
+	}
+
+	/**
+	 * Add a task which is started by startTasks() or awaitTermination(), and
+	 * return the future of the topic model it runs.
+	 */
+	public synchronized CompletableFuture<TopicModel> addTask(Corpus corpus,
+			ModelParameters param) {
+		CompletableFuture<TopicModel> future = new CompletableFuture<TopicModel>();
+		pendingTaskList.add(new TopicModelCallable(corpus, param,
+				printingPool, listenerList));
+		pendingCostList.add(estimateCost(corpus, param));
+		pendingMemoryList.add(memoryBudget > 0 ? ModelMemoryPlanner
+				.estimateMemory(corpus, param) : 0);
+		pendingFutureList.add(future);
+		if (retainingModels) {
 			futureList.add(future);
-		} catch (Exception ex) {
-			ex.printStackTrace();
+		} else {
+			// Only wait for the task to finish.
+			futureList.add(future
+					.thenApply(new Function<TopicModel, TopicModel>() {
+						@Override
+						public TopicModel apply(TopicModel topicModel) {
+							return null;
+						}
+					}));
+		}
+		return future;
+	}
+
+	/**
+	 * Estimate the running time of a task by the number of token-topic pairs
+	 * visited by the Gibbs sampler.
+	 */
+	public static double estimateCost(Corpus corpus, ModelParameters param) {
+		long noofTokens = 0;
+		for (int[] doc : corpus.docs) {
+			noofTokens += doc.length;
+		}
+		long noofIterations = param.nIterations;
+		if ("AMC".equals(param.modelName)) {
+			// AMC runs the iterations again for each cannot-link learning
+			// round.
+			noofIterations *= 1 + param.cannotLinkLearningIterations;
 		}
+		return 1.0 * noofTokens * param.T * noofIterations;
 	}
 
+	/**
+	 * Start the tasks added so far, from the most expensive to the least one.
+	 * Without a memory budget, they are all executed at once.
+	 */
+	public synchronized void startTasks() {
+		ArrayList<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < pendingTaskList.size(); ++i) {
+			order.add(i);
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return Double.compare(pendingCostList.get(i2),
+						pendingCostList.get(i1));
+			}
+		});
+		for (int i : order) {
+			admissionQueue.add(new AdmissionRequest(pendingTaskList.get(i),
+					pendingCostList.get(i), pendingMemoryList.get(i),
+					pendingFutureList.get(i)));
+		}
+		pendingTaskList.clear();
+		pendingCostList.clear();
+		pendingMemoryList.clear();
+		pendingFutureList.clear();
+
+		// Keep the tasks started earlier but not admitted yet in the order of
+		// costs too.
+		Collections.sort(admissionQueue, new Comparator<AdmissionRequest>() {
+			@Override
+			public int compare(AdmissionRequest r1, AdmissionRequest r2) {
+				return Double.compare(r2.cost, r1.cost);
+			}
+		});
+		admitTasks();
+	}
+
+	/**
+	 * Execute the queued tasks that fit into the memory budget, from the most
+	 * expensive to the least one.
+	 */
+	private synchronized void admitTasks() {
+		for (int i = 0; i < admissionQueue.size();) {
+			AdmissionRequest request = admissionQueue.get(i);
+			if (memoryBudget > 0 && noofAdmittedTasks > 0
+					&& memoryInUse + request.memory > memoryBudget) {
+				++i;
+				continue;
+			}
+			if (memoryBudget > 0 && request.memory > memoryBudget) {
+				System.out.println("\"" + request.task.getDomain()
+						+ "\" is estimated to need "
+						+ (request.memory >> 20)
+						+ " MB, more than the memory budget.");
+			}
+			admissionQueue.remove(i);
+			memoryInUse += request.memory;
+			++noofAdmittedTasks;
+			reservedMemoryMap.put(request.task.getParam(), request.memory);
+			execute(request);
+		}
+	}
+
+	private void execute(final AdmissionRequest request) {
+		pool.execute(new Runnable() {
+			@Override
+			public void run() {
+				TopicModel topicModel = null;
+				// Errors (e.g., OutOfMemoryError) fail the task too, otherwise
+				// its future would never complete.
+				Throwable throwable = null;
+				try {
+					topicModel = request.task.call();
+				} catch (Throwable th) {
+					throwable = th;
+				}
+				try {
+					// The memory of the task is released once its model is
+					// printed, unless the task failed before. Either way, it
+					// is released before completing the future, which may add
+					// new tasks.
+					if (throwable != null) {
+						releaseMemory(request.task.getParam());
+					}
+				} finally {
+					if (throwable == null) {
+						request.future.complete(topicModel);
+					} else {
+						request.future.completeExceptionally(throwable);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Release the memory reserved for the task of the parameters (if not
+	 * released yet) and admit the tasks that fit now.
+	 */
+	private synchronized void releaseMemory(ModelParameters param) {
+		Long memory = reservedMemoryMap.remove(param);
+		if (memory == null) {
+			return;
+		}
+		memoryInUse -= memory;
+		--noofAdmittedTasks;
+		admitTasks();
+	}
+
+	/**
+	 * Start the remaining tasks and wait for all tasks to finish and all
+	 * models to be printed.
+	 */
 	public void awaitTermination() {
 		try {
-			executor.shutdown();
-			executor.awaitTermination(60, TimeUnit.DAYS);
+			startTasks();
 
-			// Get all the topic models. Note that they are sorted according to
-			// the domain name alphabetically.
-			for (Future<TopicModel> future : futureList) {
+			// Get all the topic models in the order of the tasks added.
+			ArrayList<CompletableFuture<TopicModel>> futureListCopy = null;
+			synchronized (this) {
+				futureListCopy = new ArrayList<CompletableFuture<TopicModel>>(
+						futureList);
+			}
+			for (CompletableFuture<TopicModel> future : futureListCopy) {
 				TopicModel topicModel = future.get();
-				topicModelList.add(topicModel);
+				if (topicModel != null) {
+					topicModelList.add(topicModel);
+				}
 			}
 		} catch (Exception ex) {
 			ex.printStackTrace();
+		} finally {
+			pool.shutdown();
+			printingPool.awaitTermination();
 		}
 	}
 }
+
+/**
+ * A task started but not admitted into the thread pool yet, with its
+ * estimated cost and memory and the future of its result.
+ */
+class AdmissionRequest {
+	public TopicModelCallable task = null;
+	public double cost = 0;
+	public long memory = 0;
+	public CompletableFuture<TopicModel> future = null;
+
+	public AdmissionRequest(TopicModelCallable task2, double cost2,
+			long memory2, CompletableFuture<TopicModel> future2) {
+		task = task2;
+		cost = cost2;
+		memory = memory2;
+		future = future2;
+	}
+}
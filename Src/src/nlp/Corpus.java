@@ -17,8 +17,16 @@ import utility.FileReaderAndWriter;
 public class Corpus {
 	public String domain = null; // Domain name.
 	public Vocabulary vocab = null;
+	// The word ids in each document. The words are not kept per token, see
+	// getDocumentWordstrs().
 	public int[][] docs = null;
-	public String[][] docsStr = null;
+
+	// The vocabulary shared by all corpora and the mapping between the local
+	// word ids of this corpus and the global word ids (see
+	// GlobalVocabulary.addCorpus()), null if the corpus is not attached.
+	public GlobalVocabulary globalVocabulary = null;
+	public int[] localToGlobalWordids = null;
+	public int[] globalToLocalWordids = null;
 
 	// Build the inverted index that is used to compute document
 	// frequency and co-document frequency.
@@ -52,17 +60,14 @@ public class Corpus {
 				
 		int size = docsLines_nonEmpty.size();
 		corpus.docs = new int[size][];
-		corpus.docsStr = new String[size][];
 		for (int d = 0; d < size; ++d) {
 			String docsLine = docsLines_nonEmpty.get(d);
 			String[] splits = docsLine.trim().split(" ");
 			int length = splits.length;
 			corpus.docs[d] = new int[length];
-			corpus.docsStr[d] = new String[length];
 			for (int n = 0; n < length; ++n) {
 				int wordid = Integer.parseInt(splits[n]);
 				corpus.docs[d][n] = wordid;
-				corpus.docsStr[d][n] = corpus.vocab.getWordstrByWordid(wordid);
 				// Update the inverted index.
 				String wordstr = corpus.vocab.getWordstrByWordid(wordid);
 				if (!corpus.wordstrToSetOfDocsMap.containsKey(wordstr)) {
@@ -78,6 +83,36 @@ public class Corpus {
 		return corpus;
 	}
 
+	/**
+	 * Get the words of document d, looked up from the vocabulary.
+	 */
+	public String[] getDocumentWordstrs(int d) {
+		int[] doc = docs[d];
+		String[] wordstrs = new String[doc.length];
+		for (int n = 0; n < doc.length; ++n) {
+			wordstrs[n] = vocab.getWordstrByWordid(doc[n]);
+		}
+		return wordstrs;
+	}
+
+	/**
+	 * Get the global word id of a word id of this corpus.
+	 */
+	public int getGlobalWordid(int localWordid) {
+		return localToGlobalWordids[localWordid];
+	}
+
+	/**
+	 * Get the word id in this corpus of a global word id, or -1 if the word is
+	 * not in this corpus.
+	 */
+	public int getLocalWordid(int globalWordid) {
+		if (globalWordid < 0 || globalWordid >= globalToLocalWordids.length) {
+			return -1;
+		}
+		return globalToLocalWordids[globalWordid];
+	}
+
 	/**
 	 * Get the number of documents in the corpus.
 	 */
@@ -85,6 +120,20 @@ public class Corpus {
 		return docs == null ? 0 : docs.length;
 	}
 
+	/**
+	 * Replace the words of the inverted index by the instances kept by the
+	 * global vocabulary.
+	 */
+	void internInvertedIndex(GlobalVocabulary globalVocabulary) {
+		Map<String, HashSet<Integer>> internedMap = new TreeMap<String, HashSet<Integer>>();
+		for (Map.Entry<String, HashSet<Integer>> entry : wordstrToSetOfDocsMap
+				.entrySet()) {
+			internedMap.put(globalVocabulary.intern(entry.getKey()),
+					entry.getValue());
+		}
+		wordstrToSetOfDocsMap = internedMap;
+	}
+
 	/**
 	 * Get the number of documents that contain this word.
 	 */
@@ -0,0 +1,98 @@
+package nlp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The vocabulary shared by all corpora (domains), mapping each word to a
+ * global word id that is the same in every domain.
+ *
+ * Each corpus attached by addCorpus() gets the mapping between its local word
+ * ids (the ones of its own vocabulary) and the global word ids (see
+ * Corpus.getGlobalWordid() and Corpus.getLocalWordid()), so the knowledge
+ * mined from the topics of several domains can compare words as ints instead
+ * of strings. The strings of the vocabularies of the attached corpora are
+ * interned, i.e., the same word in different domains is the same String
+ * instance.
+ *
+ * The methods are synchronized since the models of several domains run in
+ * parallel.
+ */
+public class GlobalVocabulary {
+	// Global word id -> word and word -> global word id.
+	private ArrayList<String> wordstrs = new ArrayList<String>();
+	private Map<String, Integer> wordstrToGlobalWordidMap = new HashMap<String, Integer>();
+
+	/**
+	 * Get the global word id of the word, adding the word if it is new.
+	 */
+	public synchronized int getOrAddGlobalWordid(String wordstr) {
+		Integer globalWordid = wordstrToGlobalWordidMap.get(wordstr);
+		if (globalWordid == null) {
+			globalWordid = wordstrs.size();
+			wordstrs.add(wordstr);
+			wordstrToGlobalWordidMap.put(wordstr, globalWordid);
+		}
+		return globalWordid;
+	}
+
+	/**
+	 * Get the global word id of the word, or -1 if it is not in the
+	 * vocabulary.
+	 */
+	public synchronized int getGlobalWordid(String wordstr) {
+		Integer globalWordid = wordstrToGlobalWordidMap.get(wordstr);
+		return globalWordid == null ? -1 : globalWordid;
+	}
+
+	public synchronized String getWordstr(int globalWordid) {
+		return wordstrs.get(globalWordid);
+	}
+
+	/**
+	 * Get the instance of the word kept by the vocabulary, adding the word if
+	 * it is new.
+	 */
+	public synchronized String intern(String wordstr) {
+		return wordstrs.get(getOrAddGlobalWordid(wordstr));
+	}
+
+	public synchronized int size() {
+		return wordstrs.size();
+	}
+
+	/**
+	 * Add the words of the corpus, intern the strings of its vocabulary and
+	 * inverted index, and build the mapping between its local and global word ids.
+	 */
+	public synchronized void addCorpus(Corpus corpus) {
+		Vocabulary vocab = corpus.vocab;
+		int V = vocab.size();
+		int[] localToGlobalWordids = new int[V];
+		for (int w = 0; w < V; ++w) {
+			String wordstr = intern(vocab.getWordstrByWordid(w));
+			localToGlobalWordids[w] = getOrAddGlobalWordid(wordstr);
+			vocab.wordidToWordstrMap.put(w, wordstr);
+		}
+		// Re-put the keys of the reverse map so that they are interned too.
+		for (int w = 0; w < V; ++w) {
+			String wordstr = vocab.getWordstrByWordid(w);
+			vocab.wordstrToWordidMap.remove(wordstr);
+			vocab.wordstrToWordidMap.put(wordstr, w);
+		}
+		corpus.internInvertedIndex(this);
+		// Every word of the corpus has a global word id smaller than the
+		// current size, so the words added later are not in the corpus.
+		int[] globalToLocalWordids = new int[wordstrs.size()];
+		for (int g = 0; g < globalToLocalWordids.length; ++g) {
+			globalToLocalWordids[g] = -1;
+		}
+		for (int w = 0; w < V; ++w) {
+			globalToLocalWordids[localToGlobalWordids[w]] = w;
+		}
+		corpus.globalVocabulary = this;
+		corpus.localToGlobalWordids = localToGlobalWordids;
+		corpus.globalToLocalWordids = globalToLocalWordids;
+	}
+}
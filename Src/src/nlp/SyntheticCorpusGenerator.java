@@ -0,0 +1,290 @@
+package nlp;
+
+import global.GeneratorCmdOption;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import utility.AliasSampler;
+import utility.ExceptionUtility;
+import utility.FileReaderAndWriter;
+import utility.InverseTransformSampler;
+import utility.ItemWithValue;
+import utility.OSFilePathConvertor;
+
+/**
+ * Generate synthetic domains (docs and vocab files in the input format of the
+ * program) from the generative process of LDA:
+ *
+ * 1. Draw the topic-word distribution of each shared topic from Dirichlet
+ * (beta) over the shared vocabulary.
+ *
+ * 2. Each domain uses a subset of the shared topics. For each document, draw
+ * its length and its topic distribution from Dirichlet (alpha) over the topics
+ * of the domain, then draw the topic and the word of each token.
+ *
+ * The domains share the topics and the words, so the knowledge of a domain can
+ * be learned from the others. The true topics of each domain are printed into
+ * the file domain.true.twords (same format as the .twords output of the
+ * models) to check the topic recovery.
+ */
+public class SyntheticCorpusGenerator {
+	public static String trueTwordsSuffix = ".true.twords";
+
+	private GeneratorCmdOption cmdOption = null;
+	private int V = 0;
+	private int T = 0;
+	private int K = 0;
+
+	// The topic-word distributions of the shared topics and the alias
+	// samplers drawing words from them.
+	private double[][] phi = null;
+	private AliasSampler[] wordSamplers = null;
+	// The shared topics used by each domain.
+	private int[][] topicsOfDomain = null;
+
+	public SyntheticCorpusGenerator(GeneratorCmdOption cmdOption2) {
+		cmdOption = cmdOption2;
+		V = cmdOption.nVocab;
+		T = cmdOption.nTopics;
+		K = cmdOption.nDomainTopics;
+		ExceptionUtility.assertAsException(K <= T,
+				"The number of topics in each domain exceeds the number of topics!");
+	}
+
+	/**
+	 * Generate all domains into the output directory.
+	 */
+	public void run() {
+		// The topics only depend on the seed, not on the number of documents.
+		Random randomGenerator = new Random(cmdOption.randomSeed);
+		generateTopics(randomGenerator);
+
+		int width = String.valueOf(cmdOption.nDomains).length();
+		for (int i = 0; i < cmdOption.nDomains; ++i) {
+			String domain = "Domain" + String.format("%0" + width + "d", i);
+			// Different numbers of documents give different documents.
+			Random docsRandomGenerator = new Random(cmdOption.randomSeed
+					+ 1000003L * cmdOption.nDocs + i);
+			long noofTokens = generateDomain(domain, topicsOfDomain[i],
+					docsRandomGenerator);
+			System.out.println(domain + " : " + cmdOption.nDocs
+					+ " documents, " + noofTokens + " tokens.");
+		}
+	}
+
+	/**
+	 * Draw the shared topics and choose the topics of each domain.
+	 */
+	private void generateTopics(Random randomGenerator) {
+		phi = new double[T][];
+		wordSamplers = new AliasSampler[T];
+		for (int t = 0; t < T; ++t) {
+			phi[t] = sampleDirichlet(cmdOption.beta, V, randomGenerator);
+			wordSamplers[t] = new AliasSampler(phi[t]);
+		}
+
+		topicsOfDomain = new int[cmdOption.nDomains][];
+		int[] topics = new int[T];
+		for (int t = 0; t < T; ++t) {
+			topics[t] = t;
+		}
+		for (int i = 0; i < cmdOption.nDomains; ++i) {
+			// Partial Fisher-Yates shuffle.
+			for (int k = 0; k < K; ++k) {
+				int j = k + randomGenerator.nextInt(T - k);
+				int temp = topics[k];
+				topics[k] = topics[j];
+				topics[j] = temp;
+			}
+			topicsOfDomain[i] = Arrays.copyOf(topics, K);
+			Arrays.sort(topicsOfDomain[i]);
+		}
+	}
+
+	/**
+	 * Generate the documents of a domain and write the docs, vocab and true
+	 * topics files. The documents are written one by one, so the domain can be
+	 * larger than the memory. Return the number of tokens.
+	 */
+	private long generateDomain(String domain, int[] topics,
+			Random randomGenerator) {
+		String domainDirectory = cmdOption.outputDirectory + File.separator
+				+ domain + File.separator;
+		String docsFilepath = OSFilePathConvertor
+				.convertOSFilePath(domainDirectory + domain
+						+ cmdOption.suffixOutputCorporeaDocs);
+		new File(docsFilepath).getParentFile().mkdirs();
+
+		// The word ids of a domain are assigned in the order of appearance.
+		int[] localWordidOfWord = new int[V];
+		Arrays.fill(localWordidOfWord, -1);
+		Vocabulary vocab = new Vocabulary();
+
+		long noofTokens = 0;
+		try {
+			BufferedWriter writer = new BufferedWriter(new FileWriter(
+					docsFilepath));
+			StringBuilder sbLine = new StringBuilder();
+			for (int d = 0; d < cmdOption.nDocs; ++d) {
+				double[] theta = sampleDirichlet(cmdOption.alpha, K,
+						randomGenerator);
+				int length = sampleDocumentLength(randomGenerator);
+				sbLine.setLength(0);
+				for (int n = 0; n < length; ++n) {
+					int k = InverseTransformSampler.sample(theta,
+							randomGenerator.nextDouble());
+					int word = wordSamplers[topics[k]].sample(randomGenerator
+							.nextDouble());
+					if (localWordidOfWord[word] < 0) {
+						localWordidOfWord[word] = vocab.size();
+						vocab.addWordstrWithWordid(localWordidOfWord[word],
+								getWordstr(word));
+					}
+					if (n > 0) {
+						sbLine.append(' ');
+					}
+					sbLine.append(localWordidOfWord[word]);
+				}
+				sbLine.append(System.getProperty("line.separator"));
+				writer.write(sbLine.toString());
+				noofTokens += length;
+			}
+			writer.close();
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+
+		vocab.printToFile(domainDirectory + domain
+				+ cmdOption.suffixOutputCorporeaVocab);
+		printTrueTopics(topics, domainDirectory + domain + trueTwordsSuffix);
+		return noofTokens;
+	}
+
+	/**
+	 * Draw the length of a document (at least 1).
+	 */
+	private int sampleDocumentLength(Random randomGenerator) {
+		int mean = cmdOption.docLength;
+		int length = mean;
+		if (cmdOption.docLengthDistribution.equals("poisson")) {
+			if (mean < 500) {
+				// Knuth's algorithm.
+				double L = Math.exp(-mean);
+				double p = randomGenerator.nextDouble();
+				length = 0;
+				while (p > L) {
+					p *= randomGenerator.nextDouble();
+					++length;
+				}
+			} else {
+				// Normal approximation for long documents.
+				length = (int) Math.round(mean + Math.sqrt(mean)
+						* randomGenerator.nextGaussian());
+			}
+		} else if (cmdOption.docLengthDistribution.equals("uniform")) {
+			length = 1 + randomGenerator.nextInt(Math.max(2 * mean - 1, 1));
+		} else {
+			ExceptionUtility.assertAsException(cmdOption.docLengthDistribution
+					.equals("fixed"), "Unknown document length distribution: "
+					+ cmdOption.docLengthDistribution);
+		}
+		return Math.max(length, 1);
+	}
+
+	/**
+	 * Draw from the symmetric Dirichlet distribution with the given
+	 * concentration. The Gamma variables are computed in log space since small
+	 * concentrations (e.g., 0.01) underflow.
+	 */
+	private double[] sampleDirichlet(double concentration, int size,
+			Random randomGenerator) {
+		double[] logGamma = new double[size];
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < size; ++i) {
+			logGamma[i] = sampleLogGamma(concentration, randomGenerator);
+			max = Math.max(max, logGamma[i]);
+		}
+		double sum = 0;
+		for (int i = 0; i < size; ++i) {
+			logGamma[i] = Math.exp(logGamma[i] - max);
+			sum += logGamma[i];
+		}
+		for (int i = 0; i < size; ++i) {
+			logGamma[i] /= sum;
+		}
+		return logGamma;
+	}
+
+	/**
+	 * Draw the log of a Gamma(shape, 1) variable using Marsaglia and Tsang's
+	 * method. For shape < 1, Gamma(shape) = Gamma(shape + 1) * U^(1 / shape).
+	 */
+	private double sampleLogGamma(double shape, Random randomGenerator) {
+		double boost = 0;
+		if (shape < 1) {
+			boost = Math.log(1.0 - randomGenerator.nextDouble()) / shape;
+			shape += 1;
+		}
+		double d = shape - 1.0 / 3;
+		double c = 1.0 / Math.sqrt(9 * d);
+		while (true) {
+			double x = randomGenerator.nextGaussian();
+			double v = 1 + c * x;
+			if (v <= 0) {
+				continue;
+			}
+			v = v * v * v;
+			double u = 1.0 - randomGenerator.nextDouble();
+			if (u < 1 - 0.0331 * x * x * x * x
+					|| Math.log(u) < 0.5 * x * x + d * (1 - v + Math.log(v))) {
+				return Math.log(d * v) + boost;
+			}
+		}
+	}
+
+	private String getWordstr(int word) {
+		return "word" + word;
+	}
+
+	/**
+	 * Print the top words of the true topics of a domain. The topics are named
+	 * by their ids among the shared topics.
+	 */
+	private void printTrueTopics(int[] topics, String filepath) {
+		int twords = Math.min(cmdOption.twords, V);
+		ArrayList<ArrayList<ItemWithValue>> topWordsUnderTopics = new ArrayList<ArrayList<ItemWithValue>>();
+		for (int topic : topics) {
+			ArrayList<ItemWithValue> wordsWithProbs = new ArrayList<ItemWithValue>();
+			for (int v = 0; v < V; ++v) {
+				wordsWithProbs.add(new ItemWithValue(getWordstr(v),
+						phi[topic][v]));
+			}
+			Collections.sort(wordsWithProbs);
+			topWordsUnderTopics.add(new ArrayList<ItemWithValue>(
+					wordsWithProbs.subList(0, twords)));
+		}
+
+		StringBuilder sbOutput = new StringBuilder();
+		for (int k = 0; k < topics.length; ++k) {
+			sbOutput.append("Topic " + topics[k]);
+			sbOutput.append("\t");
+		}
+		sbOutput.append(System.getProperty("line.separator"));
+		for (int pos = 0; pos < twords; ++pos) {
+			StringBuilder sbLine = new StringBuilder();
+			for (int k = 0; k < topics.length; ++k) {
+				sbLine.append(topWordsUnderTopics.get(k).get(pos).getIterm());
+				sbLine.append("\t");
+			}
+			sbOutput.append(sbLine.toString().trim());
+			sbOutput.append(System.getProperty("line.separator"));
+		}
+		FileReaderAndWriter.writeFile(filepath, sbOutput.toString());
+	}
+}
@@ -11,6 +11,9 @@ public class Topic {
 	// The top words with their original probabilities.
 	public ArrayList<ItemWithValue> topWordList = null;
 	public String domain = null; // Domain name.
+	// The global word ids of the top words (in the same order), null if they
+	// are not set (see setGlobalWordids()).
+	public int[] globalWordids = null;
 
 	// public Topic(ArrayList<ItemWithValue> topWordList2) {
 	// topWordList = topWordList2;
@@ -33,6 +36,34 @@ public class Topic {
 		return false;
 	}
 
+	/**
+	 * Set the global word ids of the top words, adding the words that are not
+	 * in the global vocabulary.
+	 */
+	public void setGlobalWordids(GlobalVocabulary globalVocabulary) {
+		// Fill the ids before publishing them, so that globalWordids is either
+		// null or complete.
+		int[] ids = new int[topWordList.size()];
+		for (int i = 0; i < topWordList.size(); ++i) {
+			ids[i] = globalVocabulary.getOrAddGlobalWordid(topWordList.get(i)
+					.getIterm().toString());
+		}
+		globalWordids = ids;
+	}
+
+	/**
+	 * Check if a global word id is in (top word list of) the topic. The global
+	 * word ids must have been set.
+	 */
+	public boolean containsGlobalWordid(int globalWordid) {
+		for (int id : globalWordids) {
+			if (id == globalWordid) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
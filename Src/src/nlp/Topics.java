@@ -30,6 +30,27 @@ public class Topics implements Iterable<Topic> {
 		}
 	}
 
+	/**
+	 * Set the global word ids of the top words of each topic.
+	 */
+	public void setGlobalWordids(GlobalVocabulary globalVocabulary) {
+		for (Topic topic : topicList) {
+			topic.setGlobalWordids(globalVocabulary);
+		}
+	}
+
+	/**
+	 * Check if the global word ids of all topics are set.
+	 */
+	public boolean hasGlobalWordids() {
+		for (Topic topic : topicList) {
+			if (topic.globalWordids == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	public int size() {
 		return topicList.size();
 	}
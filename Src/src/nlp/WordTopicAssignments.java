@@ -24,6 +24,10 @@ public class WordTopicAssignments {
 		wordTopicAssignments.remove(wta);
 	}
 
+	public void clear() {
+		wordTopicAssignments.clear();
+	}
+
 	public WordTopicAssignment get(int index) {
 		return wordTopicAssignments.get(index);
 	}
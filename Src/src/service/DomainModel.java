@@ -0,0 +1,178 @@
+package service;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeMap;
+
+import model.ModelLoader;
+import model.ModelPrinter;
+import model.TopicInferencer;
+import model.TopicModel;
+import nlp.Vocabulary;
+import utility.FileReaderAndWriter;
+import utility.TopKSelector;
+
+/**
+ * The part of the trained model of a domain that answers the queries of the
+ * query service, kept in memory by ModelCache.
+ *
+ * The model is loaded by ModelLoader, but only the distributions, the
+ * vocabulary and the knowledge are kept, so the sampling variables of the
+ * loaded model are garbage collected. The words under each topic are ranked
+ * once when loading, so a top-k query does not sort the vocabulary.
+ */
+public class DomainModel {
+	public String domain = null;
+	public int T = 0;
+	public int V = 0;
+
+	private Vocabulary vocab = null;
+	private double[][] phi = null; // Topic-word distribution, size T * V.
+	private double[][] theta = null; // Document-topic distribution, size D * T.
+	// wordsRankedUnderTopics[t]: the word ids sorted by phi[t][] descendingly.
+	private int[][] wordsRankedUnderTopics = null;
+	private TopicInferencer inferencer = null;
+	// The words linked with each word by must-links and cannot-links.
+	private TreeMap<String, ArrayList<String>> mustLinkedWords = new TreeMap<String, ArrayList<String>>();
+	private TreeMap<String, ArrayList<String>> cannotLinkedWords = new TreeMap<String, ArrayList<String>>();
+
+	// The estimated number of bytes of the arrays above.
+	private long estimatedBytes = 0;
+
+	/**
+	 * Load the model of the domain from its directory. Return null if it
+	 * cannot be loaded.
+	 */
+	public static DomainModel loadDomainModel(String modelName, String domain,
+			String modelDirectory, int nInferenceIterations,
+			int nInferenceBurnin) {
+		ModelLoader modelLoader = new ModelLoader();
+		TopicModel model = modelLoader.loadModel(modelName, domain,
+				modelDirectory);
+		if (model == null) {
+			return null;
+		}
+
+		DomainModel domainModel = new DomainModel();
+		domainModel.domain = domain;
+		domainModel.T = model.param.T;
+		domainModel.V = model.param.V;
+		domainModel.vocab = model.corpus.vocab;
+		domainModel.phi = model.getTopicWordDistribution();
+		domainModel.theta = modelLoader
+				.loadTwoDimentionalDistribution(modelDirectory + domain
+						+ ModelPrinter.documentTopicDistSuff);
+		domainModel.inferencer = new TopicInferencer(model,
+				nInferenceIterations, nInferenceBurnin);
+		domainModel.rankWordsUnderTopics();
+		domainModel.loadLinkedWords(modelDirectory + domain
+				+ ModelPrinter.knowledgeSuffix + "_mustlinks",
+				domainModel.mustLinkedWords);
+		domainModel.loadLinkedWords(modelDirectory + domain
+				+ ModelPrinter.knowledgeSuffix + "_cannotlinks",
+				domainModel.cannotLinkedWords);
+		domainModel.estimateBytes();
+		return domainModel;
+	}
+
+	private void rankWordsUnderTopics() {
+		wordsRankedUnderTopics = TopKSelector.selectTopKOfEachRow(phi, V);
+	}
+
+	/**
+	 * Load the word pairs (one pair per line) of the knowledge file if it
+	 * exists (AMC only).
+	 */
+	private void loadLinkedWords(String filepath,
+			TreeMap<String, ArrayList<String>> linkedWords) {
+		if (!new File(filepath).exists()) {
+			return;
+		}
+		for (String line : FileReaderAndWriter.readFileAllLines(filepath)) {
+			String[] wordstrs = line.trim().split(" ");
+			if (wordstrs.length != 2) {
+				continue;
+			}
+			addLinkedWord(linkedWords, wordstrs[0], wordstrs[1]);
+			addLinkedWord(linkedWords, wordstrs[1], wordstrs[0]);
+		}
+		for (ArrayList<String> words : linkedWords.values()) {
+			Collections.sort(words);
+		}
+	}
+
+	private static void addLinkedWord(
+			TreeMap<String, ArrayList<String>> linkedWords, String wordstr,
+			String linkedWordstr) {
+		ArrayList<String> words = linkedWords.get(wordstr);
+		if (words == null) {
+			words = new ArrayList<String>();
+			linkedWords.put(wordstr, words);
+		}
+		words.add(linkedWordstr);
+	}
+
+	/**
+	 * Estimate the bytes of the arrays kept in memory: phi (and its copy in
+	 * the inferencer), the rankings, theta and the vocabulary (about 100 bytes
+	 * per word with the map entries).
+	 */
+	private void estimateBytes() {
+		int D = theta.length;
+		estimatedBytes = 2L * T * V * 8 + (long) T * V * 4 + (long) D * T * 8
+				+ 100L * V;
+		for (ArrayList<String> words : mustLinkedWords.values()) {
+			estimatedBytes += 100L + 8L * words.size();
+		}
+		for (ArrayList<String> words : cannotLinkedWords.values()) {
+			estimatedBytes += 100L + 8L * words.size();
+		}
+	}
+
+	public long getEstimatedBytes() {
+		return estimatedBytes;
+	}
+
+	public int getNoofDocuments() {
+		return theta.length;
+	}
+
+	/**
+	 * Get the top k word ids under the topic.
+	 */
+	public int[] getTopWordids(int topic, int k) {
+		return Arrays.copyOf(wordsRankedUnderTopics[topic], Math.min(k, V));
+	}
+
+	public String getWordstr(int wordid) {
+		return vocab.getWordstrByWordid(wordid);
+	}
+
+	public double getProbability(int topic, int wordid) {
+		return phi[topic][wordid];
+	}
+
+	public double[] getDocumentTopicDistribution(int document) {
+		return theta[document];
+	}
+
+	/**
+	 * Infer theta of new documents (words) with the given number of threads.
+	 */
+	public double[][] inferDocumentTopicDistributions(String[][] docsStr,
+			int nthreads) {
+		return inferencer.inferDocumentTopicDistributions(docsStr, nthreads);
+	}
+
+	public ArrayList<String> getMustLinkedWords(String wordstr) {
+		ArrayList<String> words = mustLinkedWords.get(wordstr);
+		return words == null ? new ArrayList<String>() : words;
+	}
+
+	public ArrayList<String> getCannotLinkedWords(String wordstr) {
+		ArrayList<String> words = cannotLinkedWords.get(wordstr);
+		return words == null ? new ArrayList<String>() : words;
+	}
+}
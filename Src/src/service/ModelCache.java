@@ -0,0 +1,143 @@
+package service;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The least recently used cache of the domain models of the query service,
+ * limited by the estimated bytes of the models (see
+ * DomainModel.getEstimatedBytes()).
+ *
+ * A model missing from the cache is loaded without holding the lock, so the
+ * queries of the cached domains are not blocked by the loading. When the
+ * cached models exceed the memory budget, the least recently used ones are
+ * evicted, but the model just loaded is always kept even if it alone exceeds
+ * the budget.
+ */
+public class ModelCache {
+	private String modelRootDirectory = null;
+	private String modelName = null;
+	private long memoryBudgetInBytes = 0;
+	private int nInferenceIterations = 0;
+	private int nInferenceBurnin = 0;
+
+	// The domain models in the access order (the least recently used first).
+	private LinkedHashMap<String, DomainModel> domainModels = new LinkedHashMap<String, DomainModel>(
+			16, 0.75f, true);
+	private long cachedBytes = 0;
+
+	/******************* Statistics *********************/
+	private long noofHits = 0;
+	private long noofMisses = 0;
+	private long noofEvictions = 0;
+
+	public ModelCache(String modelRootDirectory2, String modelName2,
+			long memoryBudgetInBytes2, int nInferenceIterations2,
+			int nInferenceBurnin2) {
+		modelRootDirectory = modelRootDirectory2;
+		modelName = modelName2;
+		memoryBudgetInBytes = memoryBudgetInBytes2;
+		nInferenceIterations = nInferenceIterations2;
+		nInferenceBurnin = nInferenceBurnin2;
+	}
+
+	/**
+	 * Get the domains that have a model directory under the model root
+	 * directory, sorted alphabetically.
+	 */
+	public ArrayList<String> getDomains() {
+		ArrayList<String> domains = new ArrayList<String>();
+		File[] domainFiles = new File(modelRootDirectory).listFiles();
+		if (domainFiles != null) {
+			for (File domainFile : domainFiles) {
+				if (domainFile.isDirectory()) {
+					domains.add(domainFile.getName());
+				}
+			}
+		}
+		Collections.sort(domains);
+		return domains;
+	}
+
+	public synchronized ArrayList<String> getCachedDomains() {
+		return new ArrayList<String>(domainModels.keySet());
+	}
+
+	/**
+	 * Get the model of the domain, loading it if it is not cached. Return null
+	 * if the domain does not exist or its model cannot be loaded.
+	 */
+	public DomainModel getDomainModel(String domain) {
+		synchronized (this) {
+			DomainModel domainModel = domainModels.get(domain);
+			if (domainModel != null) {
+				++noofHits;
+				return domainModel;
+			}
+			++noofMisses;
+		}
+
+		File modelDirectory = new File(modelRootDirectory, domain);
+		if (domain.contains("/") || domain.contains("\\")
+				|| domain.startsWith(".") || !modelDirectory.isDirectory()) {
+			return null;
+		}
+		DomainModel domainModel = DomainModel.loadDomainModel(modelName,
+				domain, modelDirectory.getPath() + File.separator,
+				nInferenceIterations, nInferenceBurnin);
+		if (domainModel == null) {
+			return null;
+		}
+
+		synchronized (this) {
+			DomainModel cachedDomainModel = domainModels.get(domain);
+			if (cachedDomainModel != null) {
+				// Loaded by another query at the same time.
+				return cachedDomainModel;
+			}
+			domainModels.put(domain, domainModel);
+			cachedBytes += domainModel.getEstimatedBytes();
+			evict();
+			return domainModel;
+		}
+	}
+
+	/**
+	 * Evict the least recently used models until the cached models fit the
+	 * memory budget, keeping the most recently used one.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, DomainModel>> iterator = domainModels
+				.entrySet().iterator();
+		while (cachedBytes > memoryBudgetInBytes && domainModels.size() > 1) {
+			DomainModel evictedModel = iterator.next().getValue();
+			iterator.remove();
+			cachedBytes -= evictedModel.getEstimatedBytes();
+			++noofEvictions;
+		}
+	}
+
+	public synchronized long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	public long getMemoryBudgetInBytes() {
+		return memoryBudgetInBytes;
+	}
+
+	public synchronized long getNoofHits() {
+		return noofHits;
+	}
+
+	public synchronized long getNoofMisses() {
+		return noofMisses;
+	}
+
+	public synchronized long getNoofEvictions() {
+		return noofEvictions;
+	}
+}
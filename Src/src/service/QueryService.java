@@ -0,0 +1,431 @@
+package service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP service answering queries about the trained models of the
+ * domains, which are kept in memory by a ModelCache. The responses are JSON
+ * objects:
+ *
+ * GET /domains: the domains and the cached domains.
+ *
+ * GET /topics?domain=D&topic=t&k=10: the top k words (with probabilities)
+ * under topic t, or under each topic if topic is not given.
+ *
+ * GET /documents?domain=D&document=d: the topic distribution of document d of
+ * the domain.
+ *
+ * POST /infer?domain=D: the topic distributions of new documents, given as the
+ * body with one document per line and the words separated by spaces.
+ *
+ * GET /knowledge?domain=D&word=w: the words linked with w by the must-links and
+ * cannot-links of the domain (AMC only).
+ *
+ * GET /stats: the statistics of the cache.
+ *
+ * An invalid query gets the status 400, an unknown domain gets 404, a query
+ * of /infer with another method than POST gets 405 and a body larger than
+ * maxBodyBytes gets 413, all with {"error": message}.
+ */
+public class QueryService {
+	private ModelCache modelCache = null;
+	private int nthreads = 1;
+	private int maxTopWords = 1000;
+	// The maximum size of the body of /infer in bytes.
+	private int maxBodyBytes = 1 << 20;
+
+	private HttpServer server = null;
+	private ExecutorService executor = null;
+
+	public QueryService(ModelCache modelCache2, int nthreads2) {
+		modelCache = modelCache2;
+		nthreads = nthreads2;
+	}
+
+	/**
+	 * Start serving on the port of the host. The service has no
+	 * authentication, so it is only reachable from the local host (the
+	 * loopback address) if the host is empty.
+	 */
+	public void start(String host, int port) throws IOException {
+		InetSocketAddress address = host.length() == 0 ? new InetSocketAddress(
+				InetAddress.getLoopbackAddress(), port)
+				: new InetSocketAddress(host, port);
+		server = HttpServer.create(address, 0);
+		server.createContext("/domains", new QueryHandler() {
+			@Override
+			protected String answer(HttpExchange exchange,
+					Map<String, String> parameters) throws QueryException {
+				StringBuilder sbJSON = new StringBuilder();
+				sbJSON.append("{\"domains\": ");
+				appendStrings(sbJSON, modelCache.getDomains());
+				sbJSON.append(", \"cached\": ");
+				appendStrings(sbJSON, modelCache.getCachedDomains());
+				sbJSON.append('}');
+				return sbJSON.toString();
+			}
+		});
+		server.createContext("/topics", new QueryHandler() {
+			@Override
+			protected String answer(HttpExchange exchange,
+					Map<String, String> parameters) throws QueryException {
+				DomainModel domainModel = getDomainModel(parameters);
+				int k = getInt(parameters, "k", 10, 1, maxTopWords);
+				int firstTopic = 0;
+				int endTopic = domainModel.T;
+				if (parameters.containsKey("topic")) {
+					firstTopic = getInt(parameters, "topic", 0, 0,
+							domainModel.T - 1);
+					endTopic = firstTopic + 1;
+				}
+
+				StringBuilder sbJSON = new StringBuilder();
+				sbJSON.append("{\"domain\": ").append(quote(domainModel.domain));
+				sbJSON.append(", \"topics\": [");
+				for (int t = firstTopic; t < endTopic; ++t) {
+					if (t > firstTopic) {
+						sbJSON.append(", ");
+					}
+					sbJSON.append("{\"topic\": ").append(t);
+					sbJSON.append(", \"words\": [");
+					int[] wordids = domainModel.getTopWordids(t, k);
+					for (int i = 0; i < wordids.length; ++i) {
+						if (i > 0) {
+							sbJSON.append(", ");
+						}
+						sbJSON.append("{\"word\": ").append(
+								quote(domainModel.getWordstr(wordids[i])));
+						sbJSON.append(", \"probability\": ").append(
+								domainModel.getProbability(t, wordids[i]));
+						sbJSON.append('}');
+					}
+					sbJSON.append("]}");
+				}
+				sbJSON.append("]}");
+				return sbJSON.toString();
+			}
+		});
+		server.createContext("/documents", new QueryHandler() {
+			@Override
+			protected String answer(HttpExchange exchange,
+					Map<String, String> parameters) throws QueryException {
+				DomainModel domainModel = getDomainModel(parameters);
+				int document = getInt(parameters, "document", -1, 0,
+						domainModel.getNoofDocuments() - 1);
+
+				StringBuilder sbJSON = new StringBuilder();
+				sbJSON.append("{\"domain\": ").append(quote(domainModel.domain));
+				sbJSON.append(", \"document\": ").append(document);
+				sbJSON.append(", \"topics\": ");
+				appendDoubles(sbJSON,
+						domainModel.getDocumentTopicDistribution(document));
+				sbJSON.append('}');
+				return sbJSON.toString();
+			}
+		});
+		server.createContext("/infer", new QueryHandler("POST") {
+			@Override
+			protected String answer(HttpExchange exchange,
+					Map<String, String> parameters) throws QueryException,
+					IOException {
+				DomainModel domainModel = getDomainModel(parameters);
+				ArrayList<String[]> docsStr = new ArrayList<String[]>();
+				for (String line : readBody(exchange, maxBodyBytes).split(
+						"\r?\n")) {
+					String trimmedLine = line.trim();
+					docsStr.add(trimmedLine.length() == 0 ? new String[0]
+							: trimmedLine.split("\\s+"));
+				}
+				double[][] theta = domainModel.inferDocumentTopicDistributions(
+						docsStr.toArray(new String[0][]), 1);
+
+				StringBuilder sbJSON = new StringBuilder();
+				sbJSON.append("{\"domain\": ").append(quote(domainModel.domain));
+				sbJSON.append(", \"documents\": [");
+				for (int d = 0; d < theta.length; ++d) {
+					if (d > 0) {
+						sbJSON.append(", ");
+					}
+					appendDoubles(sbJSON, theta[d]);
+				}
+				sbJSON.append("]}");
+				return sbJSON.toString();
+			}
+		});
+		server.createContext("/knowledge", new QueryHandler() {
+			@Override
+			protected String answer(HttpExchange exchange,
+					Map<String, String> parameters) throws QueryException {
+				DomainModel domainModel = getDomainModel(parameters);
+				String wordstr = parameters.get("word");
+				if (wordstr == null) {
+					throw new QueryException(400, "The word is not given.");
+				}
+
+				StringBuilder sbJSON = new StringBuilder();
+				sbJSON.append("{\"domain\": ").append(quote(domainModel.domain));
+				sbJSON.append(", \"word\": ").append(quote(wordstr));
+				sbJSON.append(", \"mustLinks\": ");
+				appendStrings(sbJSON, domainModel.getMustLinkedWords(wordstr));
+				sbJSON.append(", \"cannotLinks\": ");
+				appendStrings(sbJSON, domainModel.getCannotLinkedWords(wordstr));
+				sbJSON.append('}');
+				return sbJSON.toString();
+			}
+		});
+		server.createContext("/stats", new QueryHandler() {
+			@Override
+			protected String answer(HttpExchange exchange,
+					Map<String, String> parameters) throws QueryException {
+				StringBuilder sbJSON = new StringBuilder();
+				sbJSON.append("{\"cachedDomains\": ").append(
+						modelCache.getCachedDomains().size());
+				sbJSON.append(", \"cachedBytes\": ").append(
+						modelCache.getCachedBytes());
+				sbJSON.append(", \"memoryBudgetInBytes\": ").append(
+						modelCache.getMemoryBudgetInBytes());
+				sbJSON.append(", \"hits\": ").append(modelCache.getNoofHits());
+				sbJSON.append(", \"misses\": ").append(
+						modelCache.getNoofMisses());
+				sbJSON.append(", \"evictions\": ").append(
+						modelCache.getNoofEvictions());
+				sbJSON.append('}');
+				return sbJSON.toString();
+			}
+		});
+		executor = Executors.newFixedThreadPool(nthreads);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * Stop serving, waiting at most the given seconds for the queries being
+	 * answered.
+	 */
+	public void stop(int delayInSeconds) {
+		server.stop(delayInSeconds);
+		executor.shutdown();
+	}
+
+	private DomainModel getDomainModel(Map<String, String> parameters)
+			throws QueryException {
+		String domain = parameters.get("domain");
+		if (domain == null) {
+			throw new QueryException(400, "The domain is not given.");
+		}
+		DomainModel domainModel = modelCache.getDomainModel(domain);
+		if (domainModel == null) {
+			throw new QueryException(404, "The model of the domain " + domain
+					+ " is not found.");
+		}
+		return domainModel;
+	}
+
+	private static int getInt(Map<String, String> parameters, String name,
+			int defaultValue, int min, int max) throws QueryException {
+		String valueString = parameters.get(name);
+		if (valueString == null) {
+			if (defaultValue >= 0) {
+				return defaultValue;
+			}
+			throw new QueryException(400, "The " + name + " is not given.");
+		}
+		try {
+			int value = Integer.parseInt(valueString);
+			if (value >= min && value <= max) {
+				return value;
+			}
+		} catch (NumberFormatException ex) {
+			// Reported below.
+		}
+		throw new QueryException(400, "The " + name + " should be from " + min
+				+ " to " + max + ".");
+	}
+
+	// ------------------------------------------------------------------------
+	// HTTP and JSON
+	// ------------------------------------------------------------------------
+
+	/**
+	 * The handler of a query, which parses the parameters of the query and
+	 * sends the answer (or the error) as JSON.
+	 */
+	private static abstract class QueryHandler implements HttpHandler {
+		// The method of the queries, or null if any method is answered.
+		private String method = null;
+
+		public QueryHandler() {
+		}
+
+		public QueryHandler(String method2) {
+			method = method2;
+		}
+
+		protected abstract String answer(HttpExchange exchange,
+				Map<String, String> parameters) throws QueryException,
+				IOException;
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			int status = 200;
+			String response = null;
+			try {
+				if (method != null
+						&& !method.equals(exchange.getRequestMethod())) {
+					exchange.getResponseHeaders().set("Allow", method);
+					throw new QueryException(405, "The method should be "
+							+ method + ".");
+				}
+				response = answer(exchange,
+						parseQuery(exchange.getRequestURI().getRawQuery()));
+			} catch (QueryException ex) {
+				status = ex.status;
+				response = "{\"error\": " + quote(ex.getMessage()) + "}";
+			} catch (Exception ex) {
+				ex.printStackTrace();
+				status = 500;
+				response = "{\"error\": " + quote(String.valueOf(ex)) + "}";
+			}
+			byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type",
+					"application/json; charset=utf-8");
+			exchange.sendResponseHeaders(status, bytes.length);
+			OutputStream output = exchange.getResponseBody();
+			try {
+				output.write(bytes);
+			} finally {
+				output.close();
+			}
+		}
+	}
+
+	private static class QueryException extends Exception {
+		private static final long serialVersionUID = 1L;
+		private int status = 400;
+
+		public QueryException(int status2, String message) {
+			super(message);
+			status = status2;
+		}
+	}
+
+	private static Map<String, String> parseQuery(String rawQuery)
+			throws QueryException {
+		Map<String, String> parameters = new HashMap<String, String>();
+		if (rawQuery == null) {
+			return parameters;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int index = pair.indexOf('=');
+			if (index <= 0) {
+				continue;
+			}
+			try {
+				parameters.put(
+						URLDecoder.decode(pair.substring(0, index),
+								StandardCharsets.UTF_8),
+						URLDecoder.decode(pair.substring(index + 1),
+								StandardCharsets.UTF_8));
+			} catch (IllegalArgumentException ex) {
+				// E.g., an incomplete or non-hexadecimal % escape.
+				throw new QueryException(400, "The query cannot be decoded: "
+						+ ex.getMessage());
+			}
+		}
+		return parameters;
+	}
+
+	/**
+	 * Read the body of the query, which should be at most maxBytes bytes.
+	 */
+	private static String readBody(HttpExchange exchange, int maxBytes)
+			throws IOException, QueryException {
+		String contentLength = exchange.getRequestHeaders().getFirst(
+				"Content-Length");
+		if (contentLength != null) {
+			try {
+				if (Long.parseLong(contentLength.trim()) > maxBytes) {
+					throw new QueryException(413,
+							"The body should be at most " + maxBytes
+									+ " bytes.");
+				}
+			} catch (NumberFormatException ex) {
+				throw new QueryException(400,
+						"The Content-Length is not a number.");
+			}
+		}
+		// The body may be sent without its length (chunked), so it is also
+		// checked while reading.
+		InputStream input = exchange.getRequestBody();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int length = 0;
+		try {
+			while ((length = input.read(buffer)) > 0) {
+				if (output.size() + length > maxBytes) {
+					throw new QueryException(413,
+							"The body should be at most " + maxBytes
+									+ " bytes.");
+				}
+				output.write(buffer, 0, length);
+			}
+		} finally {
+			input.close();
+		}
+		return new String(output.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static void appendStrings(StringBuilder sbJSON,
+			ArrayList<String> strs) {
+		sbJSON.append('[');
+		for (int i = 0; i < strs.size(); ++i) {
+			if (i > 0) {
+				sbJSON.append(", ");
+			}
+			sbJSON.append(quote(strs.get(i)));
+		}
+		sbJSON.append(']');
+	}
+
+	private static void appendDoubles(StringBuilder sbJSON, double[] values) {
+		sbJSON.append('[');
+		for (int i = 0; i < values.length; ++i) {
+			if (i > 0) {
+				sbJSON.append(", ");
+			}
+			sbJSON.append(values[i]);
+		}
+		sbJSON.append(']');
+	}
+
+	private static String quote(String str) {
+		StringBuilder sbQuoted = new StringBuilder("\"");
+		for (int i = 0; i < str.length(); ++i) {
+			char c = str.charAt(i);
+			if (c == '"' || c == '\\') {
+				sbQuoted.append('\\').append(c);
+			} else if (c < 0x20) {
+				sbQuoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				sbQuoted.append(c);
+			}
+		}
+		return sbQuoted.append('"').toString();
+	}
+}
@@ -4,13 +4,22 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
+import metrics.MetricsRegistry;
+import metrics.ModelMetrics;
 import model.ModelLoader;
 import model.ModelParameters;
 import model.TopicModel;
+import model.TopicModelSummary;
 import multithread.TopicModelMultiThreadPool;
 import nlp.Corpus;
+import nlp.GlobalVocabulary;
 import global.CmdOption;
+import knowledge.KnowledgeStore;
 
 /**
  * The task of running the proposed method in the paper (Chen and Liu, KDD
@@ -18,9 +27,16 @@ import global.CmdOption;
  */
 public class AMCModelRunningTask {
 	private CmdOption cmdOption = null;
+	// The metrics of all domains and models.
+	private MetricsRegistry metricsRegistry = null;
+	// The knowledge store shared by the runs (null if not used).
+	private KnowledgeStore knowledgeStore = null;
+	// The vocabulary of all corpora (both 100 reviews and 1000 reviews).
+	private GlobalVocabulary globalVocabulary = new GlobalVocabulary();
 
 	public AMCModelRunningTask(CmdOption cmdOption2) {
 		cmdOption = cmdOption2;
+		metricsRegistry = new MetricsRegistry();
 	}
 
 	/**
@@ -38,9 +54,17 @@ public class AMCModelRunningTask {
 						+ File.separator + domain + suffixInputCorporeaDocs;
 				String vocabFilepath = domainFile.getAbsolutePath()
 						+ File.separator + domain + suffixInputCorporeaVocab;
+				long startTime = System.nanoTime();
 				Corpus corpus = Corpus.getCorpusFromFile(domain, docsFilepath,
 						vocabFilepath);
+				globalVocabulary.addCorpus(corpus);
 				corpora.add(corpus);
+
+				ModelMetrics corpusMetrics = new ModelMetrics("Corpus", domain,
+						inputCorporeaDirectory);
+				corpusMetrics.addPhaseTime(ModelMetrics.CORPUS_LOADING,
+						System.nanoTime() - startTime);
+				metricsRegistry.addModelMetrics(corpusMetrics);
 			}
 		}
 		return corpora;
@@ -50,6 +74,20 @@ public class AMCModelRunningTask {
 	 * For each model, create its output directory and run the model.
 	 */
 	public void run() {
+		if (cmdOption.exposeMetricsThroughJMX) {
+			metricsRegistry.registerMBean();
+		}
+		if (cmdOption.deterministic && cmdOption.knowledgeDeadline >= 0) {
+			// The domains finished before the deadline depend on timing.
+			System.out
+					.println("The knowledge deadline is ignored in the deterministic mode.");
+			cmdOption.knowledgeDeadline = -1;
+		}
+		if (cmdOption.knowledgeStoreFilepath.length() > 0) {
+			knowledgeStore = KnowledgeStore
+					.open(cmdOption.knowledgeStoreFilepath);
+		}
+
 		// There are two corporea in each domain. One contains 100 reviews and
 		// the other one contains 1000 reviews.
 		ArrayList<Corpus> corpora_100Reviews = getCorpora(
@@ -61,8 +99,24 @@ public class AMCModelRunningTask {
 				cmdOption.suffixInputCorporeaDocs,
 				cmdOption.suffixInputCorporeaVocab);
 
-		run(corpora_100Reviews, corpora_1000Reviews, cmdOption.nTopics,
-				cmdOption.modelName, cmdOption.outputRootDirectory);
+		if (cmdOption.pipeline) {
+			runPipelined(corpora_100Reviews, corpora_1000Reviews,
+					cmdOption.nTopics, cmdOption.outputRootDirectory);
+		} else {
+			run(corpora_100Reviews, corpora_1000Reviews, cmdOption.nTopics,
+					cmdOption.modelName, cmdOption.outputRootDirectory);
+		}
+
+		if (knowledgeStore != null) {
+			knowledgeStore.save();
+		}
+
+		if (cmdOption.printMetrics) {
+			metricsRegistry.printJSON(cmdOption.outputRootDirectory
+					+ "metrics.json");
+			metricsRegistry.printCSV(cmdOption.outputRootDirectory
+					+ "metrics.csv");
+		}
 	}
 
 	/**
@@ -81,10 +135,12 @@ public class AMCModelRunningTask {
 		// When the data is very small (e.g., 100 reviews), we only retain the
 		// last Markov chain status (i.e., sampleLag = -1). The reason is that
 		// it avoids the topics being dominated by the most frequent words.
-		cmdOption.sampleLag = -1;
-		ArrayList<TopicModel> topicModelList_LDA_100Reviews = runTopicModelOnCorpus(
-				corpora_100Reviews, nTopics, "LDA",
-				outputRootDirectory_LDA_100Reivews, null, null);
+		// AMC only needs the topic assignments of these models, so only they
+		// are kept (see TopicModelSummary).
+		ArrayList<TopicModelSummary> topicModelList_LDA_100Reviews = TopicModelSummary
+				.summarize(runTopicModelOnCorpus(corpora_100Reviews, nTopics,
+						"LDA", -1, outputRootDirectory_LDA_100Reivews, null,
+						null), false, true);
 
 		// Run LDA on 1000 reviews of each domain.
 		System.out.println("-----------------------------------");
@@ -93,11 +149,12 @@ public class AMCModelRunningTask {
 		String outputRootDirectory_LDA_1000Reivews = outputRootDirectory
 				+ "LDA" + File.separator + "1000Reviews" + File.separator;
 		// When the data is not very small (e.g., 1000 reviews), we should set
-		// sampleLag as 20.
-		cmdOption.sampleLag = 20;
-		ArrayList<TopicModel> topicModelList_LDA_1000Reviews = runTopicModelOnCorpus(
-				corpora_1000Reviews, nTopics, "LDA",
-				outputRootDirectory_LDA_1000Reivews, null, null);
+		// sampleLag as 20. AMC only needs the top words under the topics of
+		// these models as the knowledge.
+		ArrayList<TopicModelSummary> topicModelList_LDA_1000Reviews = TopicModelSummary
+				.summarize(runTopicModelOnCorpus(corpora_1000Reviews, nTopics,
+						"LDA", 20, outputRootDirectory_LDA_1000Reivews, null,
+						null), true, false);
 
 		// Run the proposed AMC model on 100 reviews of each domain.
 		System.out.println("-----------------------------------");
@@ -108,65 +165,224 @@ public class AMCModelRunningTask {
 		// When the data is very small (e.g., 100 reviews), we only retain the
 		// last Markov chain status (i.e., sampleLag = -1). The reason is that
 		// it avoids the topics being dominated by the most frequent words.
-		cmdOption.sampleLag = -1;
-		runTopicModelOnCorpus(corpora_100Reviews, nTopics, "AMC",
+		runTopicModelOnCorpus(corpora_100Reviews, nTopics, "AMC", -1,
 				outputRootDirectory_AMC_100Reivews,
 				topicModelList_LDA_100Reviews, topicModelList_LDA_1000Reviews);
 	}
 
+	/**
+	 * The pipelined version of run(). LDA runs on the 100 reviews and the 1000
+	 * reviews of each domain at the same time, and AMC on a domain starts as
+	 * soon as LDA on the 100 reviews of this domain and the knowledge (LDA on
+	 * the 1000 reviews of all domains) are ready, instead of waiting for all
+	 * domains between the phases.
+	 * 
+	 * If a knowledge deadline is specified, AMC does not wait for the
+	 * knowledge longer than the deadline (counted from the start of LDA) and
+	 * uses the LDA models of the domains that have finished by then.
+	 */
+	private void runPipelined(ArrayList<Corpus> corpora_100Reviews,
+			ArrayList<Corpus> corpora_1000Reviews, final int nTopics,
+			String outputRootDirectory) {
+		System.out.println("-----------------------------------");
+		System.out.println("Running LDA and AMC of each domain in a pipeline.");
+		System.out.println("-----------------------------------");
+		final TopicModelMultiThreadPool threadPool = new TopicModelMultiThreadPool(
+				cmdOption.nthreads, cmdOption.nPrintingThreads,
+				(long) cmdOption.memoryBudget << 20);
+		threadPool.addListener(metricsRegistry);
+		// Only the summaries of the LDA models are kept for AMC.
+		threadPool.setRetainingModels(false);
+
+		// Run LDA on 100 reviews (sampleLag = -1) and 1000 reviews (sampleLag
+		// = 20) of each domain. See run() for the choices of sampleLag.
+		String outputRootDirectory_LDA_100Reivews = outputRootDirectory + "LDA"
+				+ File.separator + "100Reviews" + File.separator;
+		final ArrayList<CompletableFuture<TopicModelSummary>> futureList_LDA_100Reviews = new ArrayList<CompletableFuture<TopicModelSummary>>();
+		for (Corpus corpus : corpora_100Reviews) {
+			futureList_LDA_100Reviews.add(summarizeWhenDone(
+					submitTopicModelOnCorpus(threadPool, corpus, nTopics,
+							"LDA", -1, outputRootDirectory_LDA_100Reivews,
+							null, null), false, true));
+		}
+		String outputRootDirectory_LDA_1000Reivews = outputRootDirectory
+				+ "LDA" + File.separator + "1000Reviews" + File.separator;
+		final ArrayList<CompletableFuture<TopicModelSummary>> futureList_LDA_1000Reviews = new ArrayList<CompletableFuture<TopicModelSummary>>();
+		for (Corpus corpus : corpora_1000Reviews) {
+			futureList_LDA_1000Reviews.add(summarizeWhenDone(
+					submitTopicModelOnCorpus(threadPool, corpus, nTopics,
+							"LDA", 20, outputRootDirectory_LDA_1000Reivews,
+							null, null), true, false));
+		}
+		threadPool.startTasks();
+
+		// The knowledge is ready when LDA on the 1000 reviews of all domains
+		// finishes or the deadline passes.
+		CompletableFuture<Void> knowledgeReady = CompletableFuture
+				.allOf(futureList_LDA_1000Reviews
+						.toArray(new CompletableFuture<?>[0]));
+		if (cmdOption.knowledgeDeadline >= 0) {
+			knowledgeReady = knowledgeReady.completeOnTimeout(null,
+					cmdOption.knowledgeDeadline, TimeUnit.SECONDS);
+		}
+
+		// Run AMC on 100 reviews of each domain (sampleLag = -1).
+		final String outputRootDirectory_AMC_100Reivews = outputRootDirectory
+				+ "AMC" + File.separator + "100Reviews" + File.separator;
+		ArrayList<CompletableFuture<TopicModel>> futureList_AMC_100Reviews = new ArrayList<CompletableFuture<TopicModel>>();
+		for (int i = 0; i < corpora_100Reviews.size(); ++i) {
+			final Corpus corpus = corpora_100Reviews.get(i);
+			CompletableFuture<TopicModel> future_AMC = CompletableFuture
+					.allOf(futureList_LDA_100Reviews.get(i), knowledgeReady)
+					.thenCompose(
+							new Function<Void, CompletionStage<TopicModel>>() {
+								@Override
+								public CompletionStage<TopicModel> apply(
+										Void v) {
+									CompletionStage<TopicModel> future = submitTopicModelOnCorpus(
+											threadPool,
+											corpus,
+											nTopics,
+											"AMC",
+											-1,
+											outputRootDirectory_AMC_100Reivews,
+											getFinishedTopicModelSummaries(futureList_LDA_100Reviews),
+											getFinishedTopicModelSummaries(futureList_LDA_1000Reviews));
+									threadPool.startTasks();
+									return future;
+								}
+							});
+			futureList_AMC_100Reviews.add(future_AMC);
+		}
+
+		for (CompletableFuture<TopicModel> future_AMC : futureList_AMC_100Reviews) {
+			try {
+				future_AMC.join();
+			} catch (Exception ex) {
+				ex.printStackTrace();
+			}
+		}
+		threadPool.awaitTermination();
+	}
+
+	/**
+	 * Summarize the topic model when it finishes.
+	 */
+	private CompletableFuture<TopicModelSummary> summarizeWhenDone(
+			CompletableFuture<TopicModel> future, final boolean keepTopics,
+			final boolean keepZ) {
+		return future.thenApply(new Function<TopicModel, TopicModelSummary>() {
+			@Override
+			public TopicModelSummary apply(TopicModel topicModel) {
+				return new TopicModelSummary(topicModel, keepTopics, keepZ);
+			}
+		});
+	}
+
+	/**
+	 * Get the summaries of the topic models that have finished successfully,
+	 * sorted based on the domain name alphabetically.
+	 */
+	private ArrayList<TopicModelSummary> getFinishedTopicModelSummaries(
+			ArrayList<CompletableFuture<TopicModelSummary>> futureList) {
+		ArrayList<TopicModelSummary> summaryList = new ArrayList<TopicModelSummary>();
+		for (CompletableFuture<TopicModelSummary> future : futureList) {
+			if (future.isDone() && !future.isCompletedExceptionally()) {
+				summaryList.add(future.join());
+			}
+		}
+		TopicModelSummary.sortByDomain(summaryList);
+		return summaryList;
+	}
+
 	/**
 	 * Run the topic model (LDA or AMC) on the corpus. We use multithreading and
 	 * each thread executes the model in one domain.
 	 */
 	private ArrayList<TopicModel> runTopicModelOnCorpus(
 			ArrayList<Corpus> corpora, int nTopics, String modelName,
-			String outputRootDirectory,
-			ArrayList<TopicModel> topicModelList_LDA_SameSetting,
-			ArrayList<TopicModel> topicModelList_LDA_KnowledgeFrom) {
+			int sampleLag, String outputRootDirectory,
+			ArrayList<TopicModelSummary> topicModelList_LDA_SameSetting,
+			ArrayList<TopicModelSummary> topicModelList_LDA_KnowledgeFrom) {
 		ArrayList<TopicModel> topicModelList_current = new ArrayList<TopicModel>();
 		TopicModelMultiThreadPool threadPool = new TopicModelMultiThreadPool(
-				cmdOption.nthreads);
+				cmdOption.nthreads, cmdOption.nPrintingThreads,
+				(long) cmdOption.memoryBudget << 20);
+		threadPool.addListener(metricsRegistry);
 
+		ArrayList<CompletableFuture<TopicModel>> futureList = new ArrayList<CompletableFuture<TopicModel>>();
 		for (Corpus corpus : corpora) {
-			String outputDomainDirectory = outputRootDirectory + File.separator
-					+ "DomainModels" + File.separator + corpus.domain
-					+ File.separator;
-
-			if (new File(outputDomainDirectory).exists()) {
-				// If the model of a domain in this learning
-				// iteration already exists, we load it and add it into the
-				// topic model list.
-				ModelLoader modelLoader = new ModelLoader();
-				TopicModel modelForDomain = modelLoader.loadModel(modelName,
-						corpus.domain, outputDomainDirectory);
-				System.out.println("Loaded the model of domain "
-						+ corpus.domain);
-				topicModelList_current.add(modelForDomain);
-			} else {
-				// Run the model on each domain.
-				// Construct all the parameters needed to run the model.
-				ModelParameters param = new ModelParameters(corpus, nTopics,
-						cmdOption);
-
-				param.modelName = modelName;
-				param.outputModelDirectory = outputDomainDirectory;
-				param.topicModelList_LDA_SameSetting = topicModelList_LDA_SameSetting;
-				param.topicModelList_LDA_KnowledgeFrom = topicModelList_LDA_KnowledgeFrom;
-
-				threadPool.addTask(corpus, param);
-			}
+			futureList.add(submitTopicModelOnCorpus(threadPool, corpus,
+					nTopics, modelName, sampleLag, outputRootDirectory,
+					topicModelList_LDA_SameSetting,
+					topicModelList_LDA_KnowledgeFrom));
 		}
 		threadPool.awaitTermination();
-		topicModelList_current.addAll(threadPool.topicModelList);
-		// Sort the topic model list based on the domain name alphabetically.
-		Collections.sort(topicModelList_current, new Comparator<TopicModel>() {
+		for (CompletableFuture<TopicModel> future : futureList) {
+			try {
+				topicModelList_current.add(future.join());
+			} catch (Exception ex) {
+				ex.printStackTrace();
+			}
+		}
+		sortTopicModelsByDomain(topicModelList_current);
+		return topicModelList_current;
+	}
+
+	/**
+	 * Add the task of running the topic model on the corpus of a domain into
+	 * the thread pool. If the model of the domain in this learning iteration
+	 * already exists, we load it instead.
+	 */
+	private CompletableFuture<TopicModel> submitTopicModelOnCorpus(
+			TopicModelMultiThreadPool threadPool, Corpus corpus, int nTopics,
+			String modelName, int sampleLag, String outputRootDirectory,
+			ArrayList<TopicModelSummary> topicModelList_LDA_SameSetting,
+			ArrayList<TopicModelSummary> topicModelList_LDA_KnowledgeFrom) {
+		String outputDomainDirectory = outputRootDirectory + File.separator
+				+ "DomainModels" + File.separator + corpus.domain
+				+ File.separator;
+
+		if (new File(outputDomainDirectory).exists()) {
+			// If the model of a domain in this learning
+			// iteration already exists, we load it and add it into the
+			// topic model list.
+			ModelLoader modelLoader = new ModelLoader();
+			TopicModel modelForDomain = modelLoader.loadModel(modelName,
+					corpus.domain, outputDomainDirectory);
+			// The loaded corpus needs the global word ids too, so that the
+			// summary of the model has them (see TopicModelSummary).
+			globalVocabulary.addCorpus(modelForDomain.corpus);
+			System.out.println("Loaded the model of domain " + corpus.domain);
+			return CompletableFuture.completedFuture(modelForDomain);
+		} else {
+			// Run the model on each domain.
+			// Construct all the parameters needed to run the model.
+			ModelParameters param = new ModelParameters(corpus, nTopics,
+					cmdOption);
+
+			param.modelName = modelName;
+			param.sampleLag = sampleLag;
+			param.outputModelDirectory = outputDomainDirectory;
+			param.topicModelList_LDA_SameSetting = topicModelList_LDA_SameSetting;
+			param.topicModelList_LDA_KnowledgeFrom = topicModelList_LDA_KnowledgeFrom;
+			param.knowledgeStore = knowledgeStore;
+
+			return threadPool.addTask(corpus, param);
+		}
+	}
+
+	/**
+	 * Sort the topic model list based on the domain name alphabetically.
+	 */
+	private void sortTopicModelsByDomain(ArrayList<TopicModel> topicModelList) {
+		Collections.sort(topicModelList, new Comparator<TopicModel>() {
 			@Override
 			public int compare(TopicModel o1, TopicModel o2) {
 				return o1.corpus.domain.toLowerCase().compareTo(
 						o2.corpus.domain.toLowerCase());
 			}
 		});
-		return topicModelList_current;
 	}
 
 }
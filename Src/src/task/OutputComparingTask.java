@@ -0,0 +1,162 @@
+package task;
+
+import global.ComparisonCmdOption;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.TreeSet;
+
+/**
+ * The task of comparing the output trees of two runs of the program file by
+ * file and line by line, e.g., to check that a change of performance does not
+ * change the results under the deterministic mode (-deterministic).
+ * 
+ * The metrics files (timings) are skipped, and so is the output directory in
+ * the parameter files (.param) since the runs are written into different
+ * directories.
+ */
+public class OutputComparingTask {
+	private ComparisonCmdOption cmdOption = null;
+	private String[] suffixes = null;
+	private int noofDifferences = 0;
+
+	public OutputComparingTask(ComparisonCmdOption cmdOption2) {
+		cmdOption = cmdOption2;
+		ArrayList<String> suffixList = new ArrayList<String>();
+		for (String suffix : cmdOption.suffixes.split(",")) {
+			if (suffix.trim().length() > 0) {
+				suffixList.add(suffix.trim());
+			}
+		}
+		suffixes = suffixList.toArray(new String[0]);
+	}
+
+	/**
+	 * Compare the two output trees and return the number of differences,
+	 * i.e., the files only in one tree and the files that differ.
+	 */
+	public int run() {
+		File rootA = new File(cmdOption.outputRootDirectoryA);
+		File rootB = new File(cmdOption.outputRootDirectoryB);
+		TreeSet<String> relativePaths = new TreeSet<String>();
+		listFiles(rootA, "", relativePaths);
+		listFiles(rootB, "", relativePaths);
+
+		int noofFilesCompared = 0;
+		for (String relativePath : relativePaths) {
+			File fileA = new File(rootA, relativePath);
+			File fileB = new File(rootB, relativePath);
+			if (!fileA.isFile()) {
+				reportDifference(relativePath + " : only in "
+						+ cmdOption.outputRootDirectoryB);
+			} else if (!fileB.isFile()) {
+				reportDifference(relativePath + " : only in "
+						+ cmdOption.outputRootDirectoryA);
+			} else {
+				compareFiles(relativePath, fileA, fileB);
+				++noofFilesCompared;
+			}
+		}
+
+		if (noofDifferences > cmdOption.maxDifferencesPrinted) {
+			System.out.println("...");
+		}
+		System.out.println(noofFilesCompared + " files compared, "
+				+ noofDifferences + " differences.");
+		return noofDifferences;
+	}
+
+	/**
+	 * Add the relative paths of the compared files under the directory, sorted
+	 * so that the differences are always reported in the same order.
+	 */
+	private void listFiles(File directory, String relativeDirectory,
+			TreeSet<String> relativePaths) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			String relativePath = relativeDirectory + file.getName();
+			if (file.isDirectory()) {
+				listFiles(file, relativePath + File.separator, relativePaths);
+			} else if (isCompared(file.getName())) {
+				relativePaths.add(relativePath);
+			}
+		}
+	}
+
+	private boolean isCompared(String filename) {
+		if (filename.startsWith("metrics.")) {
+			// The timings differ in every run.
+			return false;
+		}
+		if (suffixes.length == 0) {
+			return true;
+		}
+		for (String suffix : suffixes) {
+			if (filename.endsWith(suffix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compare two files line by line and report the first different line.
+	 */
+	private void compareFiles(String relativePath, File fileA, File fileB) {
+		boolean isParameterFile = relativePath.endsWith(".param");
+		try {
+			BufferedReader readerA = new BufferedReader(new FileReader(fileA));
+			BufferedReader readerB = new BufferedReader(new FileReader(fileB));
+			try {
+				int lineNo = 0;
+				while (true) {
+					String lineA = readerA.readLine();
+					String lineB = readerB.readLine();
+					++lineNo;
+					if (lineA == null && lineB == null) {
+						return;
+					}
+					if (isParameterFile && lineA != null && lineB != null
+							&& lineA.startsWith("outputModelDirectory=")
+							&& lineB.startsWith("outputModelDirectory=")) {
+						continue;
+					}
+					if (lineA == null || lineB == null || !lineA.equals(lineB)) {
+						reportDifference(relativePath + " : line " + lineNo
+								+ " differs" + System.getProperty("line.separator")
+								+ "  < " + abbreviate(lineA)
+								+ System.getProperty("line.separator") + "  > "
+								+ abbreviate(lineB));
+						return;
+					}
+				}
+			} finally {
+				readerA.close();
+				readerB.close();
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			reportDifference(relativePath + " : cannot be read");
+		}
+	}
+
+	private void reportDifference(String difference) {
+		++noofDifferences;
+		if (noofDifferences <= cmdOption.maxDifferencesPrinted) {
+			System.out.println(difference);
+		}
+	}
+
+	private static String abbreviate(String line) {
+		if (line == null) {
+			return "(end of file)";
+		}
+		return line.length() <= 200 ? line : line.substring(0, 200) + "...";
+	}
+}
@@ -0,0 +1,87 @@
+package utility;
+
+import java.util.ArrayList;
+
+/**
+ * Sample from a fixed discrete distribution in constant time using the alias
+ * method (Walker, 1977; Vose, 1991).
+ *
+ * Building the table takes O(n), so it pays off when the same distribution is
+ * sampled many times, e.g., the topic-word distribution of a topic while
+ * generating documents. If the distribution changes, a new sampler should be
+ * built.
+ */
+public class AliasSampler {
+	// probability[i]: the probability of keeping column i instead of taking
+	// its alias.
+	private double[] probability = null;
+	private int[] alias = null;
+
+	/**
+	 * It works for unnormalized distribution p.
+	 */
+	public AliasSampler(double[] p) {
+		int n = p.length;
+		probability = new double[n];
+		alias = new int[n];
+
+		double total = 0;
+		for (int i = 0; i < n; ++i) {
+			total += p[i];
+		}
+		ExceptionUtility.assertAsException(total > 0,
+				"The distribution of alias sampler is empty!");
+
+		// Scale the probabilities so that their average is 1, and split the
+		// columns into the ones below and above the average.
+		double[] scaled = new double[n];
+		ArrayList<Integer> small = new ArrayList<Integer>();
+		ArrayList<Integer> large = new ArrayList<Integer>();
+		for (int i = 0; i < n; ++i) {
+			scaled[i] = p[i] * n / total;
+			if (scaled[i] < 1.0) {
+				small.add(i);
+			} else {
+				large.add(i);
+			}
+		}
+
+		// Fill each small column with the mass of a large column.
+		while (!small.isEmpty() && !large.isEmpty()) {
+			int less = small.remove(small.size() - 1);
+			int more = large.remove(large.size() - 1);
+			probability[less] = scaled[less];
+			alias[less] = more;
+			scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+			if (scaled[more] < 1.0) {
+				small.add(more);
+			} else {
+				large.add(more);
+			}
+		}
+		// The remaining columns are full up to rounding errors.
+		for (int i : large) {
+			probability[i] = 1.0;
+			alias[i] = i;
+		}
+		for (int i : small) {
+			probability[i] = 1.0;
+			alias[i] = i;
+		}
+	}
+
+	/**
+	 * Sample with a single uniform random number in [0, 1): its integer part
+	 * (scaled by n) chooses the column and its fractional part chooses between
+	 * the column and its alias.
+	 */
+	public int sample(double randSeed) {
+		double scaled = randSeed * probability.length;
+		int column = Math.min((int) scaled, probability.length - 1);
+		return scaled - column < probability[column] ? column : alias[column];
+	}
+
+	public int size() {
+		return probability.length;
+	}
+}
@@ -0,0 +1,28 @@
+package utility;
+
+/**
+ * Wrap arrays of counts into CountMatrix without copying them, so that the
+ * matrix reads the current values of the array.
+ */
+public class CountMatrices {
+	public static CountMatrix of(final int[][] counts) {
+		return new CountMatrix() {
+			@Override
+			public void copyRow(int row, double[] buffer) {
+				int[] counts_row = counts[row];
+				for (int column = 0; column < counts_row.length; ++column) {
+					buffer[column] = counts_row[column];
+				}
+			}
+		};
+	}
+
+	public static CountMatrix of(final double[][] counts) {
+		return new CountMatrix() {
+			@Override
+			public void copyRow(int row, double[] buffer) {
+				System.arraycopy(counts[row], 0, buffer, 0, counts[row].length);
+			}
+		};
+	}
+}
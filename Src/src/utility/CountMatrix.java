@@ -0,0 +1,15 @@
+package utility;
+
+/**
+ * Read access to the rows of a matrix of counts whatever the type of its
+ * elements, e.g., the topic-word counts nwt[w][t] of LDA (ints), AMC (doubles
+ * or floats) or streaming LDA (doubles), so that TopicProbabilityKernel is
+ * implemented once for all of them. See CountMatrices for the matrices of
+ * arrays.
+ */
+public interface CountMatrix {
+	/**
+	 * Copy the counts in the row into the buffer.
+	 */
+	public void copyRow(int row, double[] buffer);
+}
@@ -2,27 +2,39 @@ package utility;
 
 /**
  * Perform inverse transform sampling.
+ *
+ * All variants return the first x whose cumulative probability exceeds u =
+ * randSeed * (total probability), so they give the same sample for the same
+ * distribution and randSeed. See AliasSampler for a distribution sampled many
+ * times without changes.
  */
 public class InverseTransformSampler {
 	/**
 	 * It works for unnormalized distribution p.
 	 */
 	public static int sample(double[] p, double randSeed) {
-		int length = p.length;
-		// Cumulative multinomial parameters.
-		double[] cdf = new double[length];
+		return sample(p, p.length, randSeed);
+	}
+
+	/**
+	 * It works for unnormalized distribution p[0...length-1], so that a
+	 * buffer p larger than the distribution can be reused across samples.
+	 */
+	public static int sample(double[] p, int length, double randSeed) {
+		// The total probability, summed in the same order as the cumulative
+		// probabilities below so that u never exceeds the last one.
+		double total = 0;
 		for (int x = 0; x < length; ++x) {
-			cdf[x] = p[x];
-		}
-		for (int x = 1; x < length; ++x) {
-			cdf[x] += cdf[x - 1];
+			total += p[x];
 		}
 
 		// Scaled sample because of unnormalized p[].
-		double u = randSeed * cdf[length - 1];
+		double u = randSeed * total;
 
+		double cumulative = 0;
 		for (int x = 0; x < length; ++x) {
-			if (cdf[x] > u) {
+			cumulative += p[x];
+			if (cumulative > u) {
 				// Sample topic w.r.t distribution p.
 				return x;
 			}
@@ -33,4 +45,96 @@ public class InverseTransformSampler {
 				.throwAndCatchException("Wrong sampling process in inverse transform sampler!");
 		return -1;
 	}
+
+	/**
+	 * It works for the cumulative distribution cdf[0...length-1] of an
+	 * unnormalized distribution, e.g., computed by TopicProbabilityKernel. The
+	 * sample is found by binary search.
+	 */
+	public static int sampleFromCumulative(double[] cdf, int length,
+			double randSeed) {
+		// Scaled sample because of unnormalized p[].
+		double u = randSeed * cdf[length - 1];
+
+		// The first x in [low, high] with cdf[x] > u.
+		int low = 0;
+		int high = length - 1;
+		if (!(cdf[high] > u)) {
+			// The program should not run to this line.
+			ExceptionUtility
+					.throwAndCatchException("Wrong sampling process in inverse transform sampler!");
+			return -1;
+		}
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (cdf[middle] > u) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Sample from the concatenation of several unnormalized distributions
+	 * (buckets), e.g., a dense smoothing bucket and sparse buckets of the
+	 * non-zero counts, without concatenating them. The bucket b is
+	 * buckets[b][0...bucketLengths[b]-1] with the total probability
+	 * bucketMasses[b], which the caller usually maintains incrementally.
+	 *
+	 * The sampled bucket is stored in result[0] and the position in the bucket
+	 * in result[1].
+	 */
+	public static void sampleFromBuckets(double[][] buckets,
+			int[] bucketLengths, double[] bucketMasses, double randSeed,
+			int[] result) {
+		double total = 0;
+		for (int b = 0; b < buckets.length; ++b) {
+			total += bucketMasses[b];
+		}
+
+		// Scaled sample because of unnormalized buckets.
+		double u = randSeed * total;
+
+		// Choose the bucket.
+		int lastNonEmptyBucket = -1;
+		for (int b = 0; b < buckets.length; ++b) {
+			if (bucketMasses[b] <= 0) {
+				continue;
+			}
+			lastNonEmptyBucket = b;
+			if (u < bucketMasses[b]) {
+				break;
+			}
+			u -= bucketMasses[b];
+		}
+		if (lastNonEmptyBucket < 0) {
+			// The program should not run to this line.
+			ExceptionUtility
+					.throwAndCatchException("Wrong sampling process in inverse transform sampler!");
+			return;
+		}
+
+		// Choose the position in the bucket. The masses maintained
+		// incrementally may differ from the sums by rounding errors, so the
+		// last non-zero position is taken if u is not reached.
+		double[] bucket = buckets[lastNonEmptyBucket];
+		int lastNonZero = -1;
+		double cumulative = 0;
+		for (int x = 0; x < bucketLengths[lastNonEmptyBucket]; ++x) {
+			if (bucket[x] <= 0) {
+				continue;
+			}
+			lastNonZero = x;
+			cumulative += bucket[x];
+			if (cumulative > u) {
+				break;
+			}
+		}
+		ExceptionUtility.assertAsException(lastNonZero >= 0,
+				"The sampled bucket is empty!");
+		result[0] = lastNonEmptyBucket;
+		result[1] = lastNonZero;
+	}
 }
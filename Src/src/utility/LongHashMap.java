@@ -0,0 +1,96 @@
+package utility;
+
+/**
+ * A hash map from primitive longs (e.g., pairs of word ids packed into a long)
+ * to objects, with open addressing and linear probing, so that the keys are
+ * not boxed and no entry object is allocated per key. Null values are not
+ * allowed, since null marks an empty slot.
+ */
+public class LongHashMap<V> {
+	// The capacity is kept a power of 2 at most three quarters full.
+	private long[] keys = null;
+	private Object[] values = null;
+	private int size = 0;
+
+	public LongHashMap() {
+		this(16);
+	}
+
+	public LongHashMap(int expectedSize) {
+		int capacity = 16;
+		while (capacity * 3 / 4 < expectedSize) {
+			capacity <<= 1;
+		}
+		keys = new long[capacity];
+		values = new Object[capacity];
+	}
+
+	/**
+	 * Get the value of the key, or null if the key is not in the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int mask = keys.length - 1;
+		for (int i = getSlot(key, mask); values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return (V) values[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Put the value (not null) of the key, replacing the old one if any.
+	 */
+	public void put(long key, V value) {
+		if (value == null) {
+			throw new IllegalArgumentException("The value cannot be null.");
+		}
+		if ((size + 1) * 4 > keys.length * 3) {
+			resize(keys.length << 1);
+		}
+		int mask = keys.length - 1;
+		int i = getSlot(key, mask);
+		for (; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				values[i] = value;
+				return;
+			}
+		}
+		keys[i] = key;
+		values[i] = value;
+		++size;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[capacity];
+		values = new Object[capacity];
+		int mask = capacity - 1;
+		for (int j = 0; j < oldKeys.length; ++j) {
+			if (oldValues[j] != null) {
+				int i = getSlot(oldKeys[j], mask);
+				while (values[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/**
+	 * Spread the bits of the key (with the finalizer of MurmurHash3), so that
+	 * the keys of the pairs sharing a word do not collide.
+	 */
+	private static int getSlot(long key, int mask) {
+		long h = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+		h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return (int) (h ^ (h >>> 33)) & mask;
+	}
+}
@@ -0,0 +1,49 @@
+package utility;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Run a loop over [0, n) in parallel, where each thread computes a contiguous
+ * range of the indices (e.g., the rows of a matrix), so that the threads do
+ * not write the same elements.
+ *
+ * The ranges are forked into the current fork-join pool if the caller runs
+ * in one (e.g., the domain thread pool), otherwise into the common pool.
+ */
+public class ParallelRanges {
+	/**
+	 * The body of the loop over a range of indices.
+	 */
+	public static abstract class RangeTask {
+		public abstract void compute(int start, int end);
+	}
+
+	/**
+	 * Run the task over [0, n) split into nthreads ranges. With one thread
+	 * (or one index), the task runs in the calling thread.
+	 */
+	public static void run(int n, int nthreads, final RangeTask task) {
+		int P = Math.max(Math.min(nthreads, n), 1);
+		if (P == 1) {
+			task.compute(0, n);
+			return;
+		}
+
+		ArrayList<RecursiveAction> taskList = new ArrayList<RecursiveAction>();
+		for (int p = 0; p < P; ++p) {
+			final int start = (int) ((long) n * p / P);
+			final int end = (int) ((long) n * (p + 1) / P);
+			taskList.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					task.compute(start, end);
+				}
+			});
+		}
+		ForkJoinTask.invokeAll(taskList);
+	}
+}
@@ -0,0 +1,72 @@
+package utility;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Create the random number generators of the topic models by name, and split
+ * them into independent generators for the samplers running in parallel.
+ *
+ * "Random" is java.util.Random, which the program has always used, so it
+ * reproduces the earlier results. The others are faster and not synchronized,
+ * e.g., "SplittableRandom", "L64X128MixRandom" or "Xoroshiro128PlusPlus"
+ * (any algorithm of java.util.random.RandomGeneratorFactory).
+ */
+public class RandomNumberGenerators {
+	public static final String JAVA_UTIL_RANDOM = "Random";
+	public static final String SPLITTABLE_RANDOM = "SplittableRandom";
+
+	/**
+	 * Check whether the algorithm is recognizable, i.e., create() can create
+	 * its generator.
+	 */
+	public static boolean isRecognizable(String algorithm) {
+		if (algorithm.equals(JAVA_UTIL_RANDOM)
+				|| algorithm.equals(SPLITTABLE_RANDOM)) {
+			return true;
+		}
+		try {
+			RandomGeneratorFactory.of(algorithm);
+			return true;
+		} catch (IllegalArgumentException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Create the generator of the algorithm seeded by the seed. The algorithm
+	 * must be recognizable (see isRecognizable()).
+	 */
+	public static RandomGenerator create(String algorithm, long seed) {
+		if (algorithm.equals(JAVA_UTIL_RANDOM)) {
+			return new Random(seed);
+		} else if (algorithm.equals(SPLITTABLE_RANDOM)) {
+			return new SplittableRandom(seed);
+		}
+		try {
+			return RandomGeneratorFactory.of(algorithm).create(seed);
+		} catch (IllegalArgumentException ex) {
+			throw new IllegalArgumentException(
+					"The random number generator is not recognizable: "
+							+ algorithm, ex);
+		}
+	}
+
+	/**
+	 * Create a new generator (e.g., for a document partition) from the
+	 * generator. The result only depends on the state of the generator, so
+	 * the splits are deterministic given the seed and the order of splitting.
+	 * Splittable generators are split, the others are seeded by the next long
+	 * of the generator.
+	 */
+	public static RandomGenerator split(RandomGenerator randomGenerator,
+			String algorithm) {
+		if (randomGenerator instanceof RandomGenerator.SplittableGenerator) {
+			return ((RandomGenerator.SplittableGenerator) randomGenerator)
+					.split();
+		}
+		return create(algorithm, randomGenerator.nextLong());
+	}
+}
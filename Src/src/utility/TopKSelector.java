@@ -0,0 +1,136 @@
+package utility;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Select the indices of the k largest values of an array (e.g., the top words
+ * of a topic) with a bounded min-heap of primitive ints, which is O(n log k)
+ * and does not box the indices or allocate an object per value.
+ *
+ * The selected indices are sorted by their values descendingly, and indices
+ * with equal values are sorted ascendingly, i.e., the result is the same as
+ * the first k indices after a stable sort of all indices by value.
+ */
+public class TopKSelector {
+	// Select the rows in parallel only if there are at least this many values,
+	// as the parallel tasks cost more than selecting a few small rows.
+	private static final long PARALLEL_THRESHOLD = 1 << 20;
+
+	/**
+	 * Get the indices of the k largest values (all indices if k is negative or
+	 * larger than the number of values).
+	 */
+	public static int[] selectTopK(double[] values, int k) {
+		int n = values.length;
+		if (k < 0 || k > n) {
+			k = n;
+		}
+		if (k == 0) {
+			return new int[0];
+		}
+
+		// heap[0] is the worst index kept so far.
+		int[] heap = new int[k];
+		int size = 0;
+		for (int i = 0; i < n; ++i) {
+			if (size < k) {
+				heap[size] = i;
+				siftUp(heap, size, values);
+				++size;
+			} else if (isWorse(heap[0], i, values)) {
+				heap[0] = i;
+				siftDown(heap, 0, size, values);
+			}
+		}
+
+		// Remove the worst index one by one, from the end of the result.
+		int[] topIndices = new int[k];
+		for (int r = k - 1; r >= 0; --r) {
+			topIndices[r] = heap[0];
+			--size;
+			heap[0] = heap[size];
+			siftDown(heap, 0, size, values);
+		}
+		return topIndices;
+	}
+
+	/**
+	 * Get the indices of the k largest values of each row, selecting the rows
+	 * in parallel if the matrix is large.
+	 */
+	public static int[][] selectTopKOfEachRow(final double[][] rows,
+			final int k) {
+		final int[][] topIndicesOfRows = new int[rows.length][];
+		long noofValues = 0;
+		for (double[] row : rows) {
+			noofValues += row.length;
+		}
+		if (noofValues < PARALLEL_THRESHOLD || rows.length < 2) {
+			for (int r = 0; r < rows.length; ++r) {
+				topIndicesOfRows[r] = selectTopK(rows[r], k);
+			}
+			return topIndicesOfRows;
+		}
+
+		ArrayList<RecursiveAction> taskList = new ArrayList<RecursiveAction>();
+		for (int r = 0; r < rows.length; ++r) {
+			final int row = r;
+			taskList.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					topIndicesOfRows[row] = selectTopK(rows[row], k);
+				}
+			});
+		}
+		ForkJoinTask.invokeAll(taskList);
+		return topIndicesOfRows;
+	}
+
+	/**
+	 * Check if index i1 ranks below index i2: a smaller value, or the same
+	 * value and a larger index.
+	 */
+	private static boolean isWorse(int i1, int i2, double[] values) {
+		int comparison = Double.compare(values[i1], values[i2]);
+		return comparison < 0 || (comparison == 0 && i1 > i2);
+	}
+
+	private static void siftUp(int[] heap, int pos, double[] values) {
+		int index = heap[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (!isWorse(index, heap[parent], values)) {
+				break;
+			}
+			heap[pos] = heap[parent];
+			pos = parent;
+		}
+		heap[pos] = index;
+	}
+
+	private static void siftDown(int[] heap, int pos, int size,
+			double[] values) {
+		if (size == 0) {
+			return;
+		}
+		int index = heap[pos];
+		int half = size >>> 1;
+		while (pos < half) {
+			int child = 2 * pos + 1;
+			int right = child + 1;
+			if (right < size && isWorse(heap[right], heap[child], values)) {
+				child = right;
+			}
+			if (!isWorse(heap[child], index, values)) {
+				break;
+			}
+			heap[pos] = heap[child];
+			pos = child;
+		}
+		heap[pos] = index;
+	}
+}
@@ -0,0 +1,108 @@
+package utility;
+
+/**
+ * Compute the full conditional of the topic of a token in the collapsed Gibbs
+ * samplers of LDA, AMC and streaming LDA:
+ *
+ * p[t] = (ndt[d][t] + alpha) / (ndsum[d] + T * alpha) * (nwt[w][t] + beta) /
+ * (ntsum[t] + V * beta)
+ *
+ * The probabilities are accumulated into the cumulative distribution in the
+ * same pass, so the caller samples from it directly (see
+ * InverseTransformSampler.sampleFromCumulative()) without copying. The counts
+ * nwt[w] of the word (of any type, see CountMatrix) are copied into a buffer of
+ * doubles first, so all arrays are read sequentially.
+ *
+ * The denominators ntsum[t] + V * beta are kept by the kernel, so the sampler
+ * calls setTopicCount() whenever ntsum[t] changes. By default, the operations
+ * are in the same order as the formula above, so the samples are exactly the
+ * same as computing p[] first. The vectorized kernel (see
+ * VectorizedTopicProbabilityKernel) multiplies by the reciprocals of the
+ * denominators instead, which rounds differently, so a token may get a
+ * different topic in the rare case that its random number falls within the
+ * rounding error of a cumulative probability.
+ */
+public class TopicProbabilityKernel {
+	private double alpha = 0;
+	private double beta = 0;
+	private double vBeta = 0;
+	// ntsumAndVBeta[t] = ntsum[t] + V * beta.
+	private double[] ntsumAndVBeta = null;
+	// The buffer of the counts of the word.
+	private double[] nwt_w = null;
+	// The vectorized kernel, or null if the probabilities are computed by the
+	// scalar loop.
+	private VectorizedTopicProbabilityKernel vectorizedKernel = null;
+
+	/**
+	 * Create the kernel of T topics whose counts ntsum[] are all 0. The
+	 * vectorized kernel needs the module jdk.incubator.vector (see
+	 * isVectorizationAvailable()).
+	 */
+	public TopicProbabilityKernel(int T, double alpha2, double beta2,
+			double vBeta2, boolean vectorized) {
+		alpha = alpha2;
+		beta = beta2;
+		vBeta = vBeta2;
+		ntsumAndVBeta = new double[T];
+		nwt_w = new double[T];
+		if (vectorized) {
+			vectorizedKernel = new VectorizedTopicProbabilityKernel(T);
+		}
+		for (int t = 0; t < T; ++t) {
+			setTopicCount(t, 0);
+		}
+	}
+
+	/**
+	 * Check if the module of the vectorized kernel is available, i.e., the
+	 * program runs with --add-modules jdk.incubator.vector.
+	 */
+	public static boolean isVectorizationAvailable() {
+		return ModuleLayer.boot().findModule("jdk.incubator.vector")
+				.isPresent();
+	}
+
+	/**
+	 * Set ntsum[t], the counts of any word appearing under topic t.
+	 */
+	public void setTopicCount(int t, double ntsum_t) {
+		ntsumAndVBeta[t] = ntsum_t + vBeta;
+		if (vectorizedKernel != null) {
+			vectorizedKernel.setDenominator(t, ntsumAndVBeta[t]);
+		}
+	}
+
+	public void setTopicCounts(int[] ntsum) {
+		for (int t = 0; t < ntsum.length; ++t) {
+			setTopicCount(t, ntsum[t]);
+		}
+	}
+
+	public void setTopicCounts(double[] ntsum) {
+		for (int t = 0; t < ntsum.length; ++t) {
+			setTopicCount(t, ntsum[t]);
+		}
+	}
+
+	/**
+	 * Fill cdf[0...T-1] for the token of word w in document d and return the
+	 * total probability, where ndsumAndTAlpha = ndsum[d] + T * alpha.
+	 */
+	public double computeCumulativeProbabilities(double[] cdf, int[] ndt_d,
+			double ndsumAndTAlpha, CountMatrix nwt, int w) {
+		nwt.copyRow(w, nwt_w);
+		if (vectorizedKernel != null) {
+			return vectorizedKernel.computeCumulativeProbabilities(cdf, ndt_d,
+					ndsumAndTAlpha, nwt_w, alpha, beta);
+		}
+		int T = ntsumAndVBeta.length;
+		double sum = 0;
+		for (int t = 0; t < T; ++t) {
+			sum += (ndt_d[t] + alpha) / ndsumAndTAlpha * (nwt_w[t] + beta)
+					/ ntsumAndVBeta[t];
+			cdf[t] = sum;
+		}
+		return sum;
+	}
+}
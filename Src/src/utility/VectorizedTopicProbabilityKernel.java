@@ -0,0 +1,79 @@
+package utility;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The vectorized computation of TopicProbabilityKernel with the Vector API
+ * (jdk.incubator.vector), used if ModelParameters.useVectorizedKernel is set.
+ *
+ * The reciprocals 1 / (ntsum[t] + V * beta) are updated with the counts, so
+ * a token only needs multiplications:
+ *
+ * p[t] = (ndt[d][t] + alpha) * (nwt[w][t] + beta) * reciprocal[t] /
+ * (ndsum[d] + T * alpha)
+ *
+ * The counts of the document are first copied into a buffer of doubles (as
+ * the counts of the word are by TopicProbabilityKernel), the probabilities
+ * are computed in lanes of the preferred vector size of the CPU (e.g., 4
+ * doubles with AVX2 and 8 with AVX-512) and the cumulative sums are taken
+ * afterwards.
+ *
+ * The class is only loaded when the vectorized kernel is used, so the program
+ * runs without the module otherwise.
+ */
+class VectorizedTopicProbabilityKernel {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	private double[] reciprocals = null;
+	// The buffer of the counts of the document.
+	private double[] ndt_d_buffer = null;
+
+	VectorizedTopicProbabilityKernel(int T) {
+		reciprocals = new double[T];
+		ndt_d_buffer = new double[T];
+	}
+
+	/**
+	 * Set the denominator ntsum[t] + V * beta of topic t.
+	 */
+	void setDenominator(int t, double denominator) {
+		reciprocals[t] = 1.0 / denominator;
+	}
+
+	/**
+	 * Fill cdf[0...T-1] for the counts ndt_d of the document and nwt_w of the
+	 * word and return the total probability.
+	 */
+	double computeCumulativeProbabilities(double[] cdf, int[] ndt_d,
+			double ndsumAndTAlpha, double[] nwt_w, double alpha, double beta) {
+		int T = reciprocals.length;
+		for (int t = 0; t < T; ++t) {
+			ndt_d_buffer[t] = ndt_d[t];
+		}
+
+		double scale = 1.0 / ndsumAndTAlpha;
+		int t = 0;
+		int upperBound = SPECIES.loopBound(T);
+		for (; t < upperBound; t += SPECIES.length()) {
+			DoubleVector ndt = DoubleVector.fromArray(SPECIES, ndt_d_buffer, t)
+					.add(alpha);
+			DoubleVector nwt = DoubleVector.fromArray(SPECIES, nwt_w, t).add(
+					beta);
+			ndt.mul(nwt)
+					.mul(DoubleVector.fromArray(SPECIES, reciprocals, t))
+					.mul(scale).intoArray(cdf, t);
+		}
+		for (; t < T; ++t) {
+			cdf[t] = (ndt_d_buffer[t] + alpha) * (nwt_w[t] + beta)
+					* reciprocals[t] * scale;
+		}
+
+		double sum = 0;
+		for (t = 0; t < T; ++t) {
+			sum += cdf[t];
+			cdf[t] = sum;
+		}
+		return sum;
+	}
+}